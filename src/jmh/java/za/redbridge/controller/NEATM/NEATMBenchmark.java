@@ -0,0 +1,68 @@
+package za.redbridge.controller.NEATM;
+
+import org.encog.ml.MLMethod;
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.train.basic.TrainEA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import za.redbridge.controller.NEATM.training.species.NEATMSpeciation;
+
+/**
+ * Measures {@link NEATMCODEC#decode} and {@link NEATMSpeciation#getCompatibilityScore} over the
+ * genomes of a population evolved for a few generations, cycling through the genomes so that
+ * the result is an average over genomes of different sizes.
+ *
+ * The speciation is never run, so every compatibility score is worked out from scratch, as for
+ * a pair that is not in the distance memo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NEATMBenchmark {
+
+    @Param({"20"})
+    private int generations;
+
+    private NEATMCODEC codec;
+    private NEATMSpeciation speciation;
+    private Genome[] genomes;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        TrainEA trainer = NEATMBenchmarks.createTrainer(150, generations);
+        List<Genome> population = NEATMBenchmarks.getGenomes(trainer);
+        genomes = population.toArray(new Genome[population.size()]);
+
+        codec = new NEATMCODEC();
+        speciation = new NEATMSpeciation();
+        speciation.init(trainer);
+    }
+
+    @Benchmark
+    public MLMethod decode() {
+        return codec.decode(nextGenome());
+    }
+
+    @Benchmark
+    public double compatibilityScore() {
+        return speciation.getCompatibilityScore(nextGenome(), nextGenome());
+    }
+
+    private Genome nextGenome() {
+        Genome genome = genomes[index];
+        index = (index + 1) % genomes.length;
+        return genome;
+    }
+}
@@ -0,0 +1,43 @@
+package za.redbridge.controller.NEATM;
+
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.species.Species;
+import org.encog.ml.ea.train.basic.TrainEA;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import za.redbridge.controller.SyntheticScore;
+
+/**
+ * Populations of NEATM genomes for the benchmarks.
+ */
+public final class NEATMBenchmarks {
+
+    // One network output per wheel
+    private static final int OUTPUT_COUNT = 2;
+
+    private NEATMBenchmarks() {
+    }
+
+    /**
+     * Evolve a population against a {@link SyntheticScore} for a few generations, so the genomes
+     * have grown some hidden neurons, links and sensors beyond those of a fresh population.
+     */
+    public static TrainEA createTrainer(int populationSize, int generations) {
+        TrainEA trainer = NEATMUtil.constructNEATTrainer(new SyntheticScore(), OUTPUT_COUNT,
+                populationSize);
+        for (int i = 0; i < generations; i++) {
+            trainer.iteration();
+        }
+        return trainer;
+    }
+
+    public static List<Genome> getGenomes(TrainEA trainer) {
+        List<Genome> genomes = new ArrayList<>();
+        for (Species species : trainer.getPopulation().getSpecies()) {
+            genomes.addAll(species.getMembers());
+        }
+        return genomes;
+    }
+}
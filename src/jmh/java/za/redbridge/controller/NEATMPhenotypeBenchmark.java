@@ -0,0 +1,71 @@
+package za.redbridge.controller;
+
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.train.basic.TrainEA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sim.util.Double2D;
+import za.redbridge.controller.NEATM.NEATMBenchmarks;
+import za.redbridge.controller.NEATM.NEATMNetwork;
+
+/**
+ * Measures {@link NEATMPhenotype#step(List)} for the best genome of a population evolved for a
+ * few generations. Run with the GC profiler (the default for the jmh task):
+ * gc.alloc.rate.norm is the number of bytes allocated per step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NEATMPhenotypeBenchmark {
+
+    private NEATMPhenotype phenotype;
+
+    private List<List<Double>> readings;
+    private List<List<Double>> otherReadings;
+
+    private boolean flip;
+
+    @Setup
+    public void setUp() {
+        TrainEA trainer = NEATMBenchmarks.createTrainer(150, 20);
+        Genome best = trainer.getBestGenome();
+        NEATMNetwork network = (NEATMNetwork) trainer.getCODEC().decode(best);
+        phenotype = new NEATMPhenotype(network);
+
+        final int numSensors = network.getSensorMorphology().getNumSensors();
+        Random random = new Random(42);
+        readings = createReadings(random, numSensors);
+        otherReadings = createReadings(random, numSensors);
+    }
+
+    @Benchmark
+    public Double2D stepFixedReadings() {
+        return phenotype.step(readings);
+    }
+
+    @Benchmark
+    public Double2D stepVaryingReadings() {
+        flip = !flip;
+        return phenotype.step(flip ? readings : otherReadings);
+    }
+
+    private static List<List<Double>> createReadings(Random random, int numSensors) {
+        List<List<Double>> readings = new ArrayList<>(numSensors);
+        for (int i = 0; i < numSensors; i++) {
+            readings.add(Collections.singletonList(random.nextDouble()));
+        }
+        return readings;
+    }
+}
@@ -0,0 +1,27 @@
+package za.redbridge.controller.SANE;
+
+import za.redbridge.controller.SyntheticScore;
+
+/**
+ * Genomes and populations for the SANE benchmarks.
+ */
+final class SANEBenchmarks {
+
+    private SANEBenchmarks() {
+    }
+
+    static BlueprintGenome createBlueprint(NetworkDimensions dimensions) {
+        NeuronGenomeFactory neuronFactory = new NeuronGenomeFactory(dimensions);
+        NeuronGenome[] blueprint = new NeuronGenome[dimensions.getHiddenSize()];
+        for (int i = 0; i < blueprint.length; i++) {
+            blueprint[i] = neuronFactory.factorRandom();
+        }
+        return new BlueprintGenome(blueprint);
+    }
+
+    /** A population scored by a {@link SyntheticScore}, with the default dimensions. */
+    static SANEControllerEvolution createEvolution(int populationSize) {
+        return new SANEControllerEvolution(null, new SyntheticScore(), populationSize,
+                NetworkDimensions.DEFAULT);
+    }
+}
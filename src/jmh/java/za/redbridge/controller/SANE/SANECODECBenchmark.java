@@ -0,0 +1,41 @@
+package za.redbridge.controller.SANE;
+
+import org.encog.ml.MLMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SANECODEC#decode} to an Encog BasicNetwork and to a flat
+ * {@link SANENetwork}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SANECODECBenchmark {
+
+    @Param({"false", "true"})
+    private boolean flatNetwork;
+
+    private SANECODEC codec;
+    private BlueprintGenome blueprint;
+
+    @Setup
+    public void setUp() {
+        NetworkDimensions dimensions = NetworkDimensions.DEFAULT;
+        codec = new SANECODEC(dimensions, flatNetwork);
+        blueprint = SANEBenchmarks.createBlueprint(dimensions);
+    }
+
+    @Benchmark
+    public MLMethod decode() {
+        return codec.decode(blueprint);
+    }
+}
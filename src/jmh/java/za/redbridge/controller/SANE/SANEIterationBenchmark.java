@@ -0,0 +1,53 @@
+package za.redbridge.controller.SANE;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import za.redbridge.controller.SyntheticScore;
+
+/**
+ * Measures one full generation of {@link BasicSANE}, breeding and scoring included, with a
+ * {@link SyntheticScore} in place of the simulation. The population keeps evolving from one
+ * invocation to the next, as it would in a run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SANEIterationBenchmark {
+
+    @Param({"200", "2000"})
+    private int populationSize;
+
+    @Param({"false", "true"})
+    private boolean steadyState;
+
+    private SANEControllerEvolution evolution;
+
+    @Setup
+    public void setUp() {
+        evolution = SANEBenchmarks.createEvolution(populationSize);
+        evolution.getGenetic().setSteadyState(steadyState);
+        // Score the initial population
+        evolution.iteration();
+    }
+
+    @TearDown
+    public void tearDown() {
+        evolution.getGenetic().finishTraining();
+    }
+
+    @Benchmark
+    public int iteration() {
+        evolution.iteration();
+        return evolution.getGenetic().getIteration();
+    }
+}
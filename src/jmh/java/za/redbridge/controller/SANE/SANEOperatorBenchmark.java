@@ -0,0 +1,85 @@
+package za.redbridge.controller.SANE;
+
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.opp.EvolutionaryOperator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the SANE genetic operators on the genomes of a fresh population: one
+ * {@link za.redbridge.controller.SANE.crossover.NeuronCrossover} producing two neurons, one
+ * {@link za.redbridge.controller.SANE.mutate.NeuronMutate} of a copy of a neuron (the copy is
+ * part of the measurement, mutation is always applied to a new child) and one
+ * {@link za.redbridge.controller.SANE.crossover.BlueprintCrossover} producing two blueprints.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SANEOperatorBenchmark {
+
+    private BasicSANE owner;
+    private Random random;
+
+    private Genome[] neurons;
+    private Genome[] blueprints;
+
+    private final Genome[] offspring = new Genome[2];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        owner = SANEBenchmarks.createEvolution(200).getGenetic();
+        random = new Random(42);
+
+        List<Genome> neuronList = owner.getNeuronPopulation().getSpecies().get(0).getMembers();
+        neurons = neuronList.toArray(new Genome[neuronList.size()]);
+        List<Genome> blueprintList = owner.getPopulation().getSpecies().get(0).getMembers();
+        blueprints = blueprintList.toArray(new Genome[blueprintList.size()]);
+    }
+
+    // The neuron crossover records every child it copies from a parent
+    @TearDown(Level.Iteration)
+    public void clearLineage() {
+        owner.getLineageIndex().clear();
+    }
+
+    @Benchmark
+    public Genome[] neuronCrossover() {
+        return apply(owner.getNeuronCrossover(), neurons);
+    }
+
+    @Benchmark
+    public Genome neuronMutate() {
+        offspring[0] = new NeuronGenome((NeuronGenome) nextParent(neurons));
+        owner.getNeuronMutate().performOperation(random, null, 0, offspring, 0);
+        return offspring[0];
+    }
+
+    @Benchmark
+    public Genome[] blueprintCrossover() {
+        return apply(owner.getBlueprintCrossover(), blueprints);
+    }
+
+    private Genome[] apply(EvolutionaryOperator operator, Genome[] population) {
+        Genome[] parents = {nextParent(population), nextParent(population)};
+        operator.performOperation(random, parents, 0, offspring, 0);
+        return offspring;
+    }
+
+    private Genome nextParent(Genome[] population) {
+        Genome parent = population[index % population.length];
+        index++;
+        return parent;
+    }
+}
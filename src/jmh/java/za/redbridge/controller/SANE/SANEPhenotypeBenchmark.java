@@ -0,0 +1,77 @@
+package za.redbridge.controller.SANE;
+
+import org.encog.neural.networks.BasicNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sim.util.Double2D;
+import za.redbridge.controller.KheperaIIIMorphology;
+import za.redbridge.controller.NEATM.sensor.SensorMorphology;
+
+/**
+ * Measures {@link SANEPhenotype#step(List)}. Run with the GC profiler (the default for the
+ * jmh task): gc.alloc.rate.norm is the number of bytes allocated per step.
+ *
+ * stepFixedReadings repeats one input, so the wheel drive does not change and no Double2D is
+ * created. stepVaryingReadings changes the wheel drive every step, so it includes the Double2D
+ * the Phenotype interface requires as a return value, as most simulation ticks do. No expected
+ * allocation figure has been recorded for either.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SANEPhenotypeBenchmark {
+
+    private SANEPhenotype phenotype;
+
+    private List<List<Double>> readings;
+    private List<List<Double>> otherReadings;
+
+    private boolean flip;
+
+    @Setup
+    public void setUp() {
+        SensorMorphology morphology = new KheperaIIIMorphology();
+        phenotype = new SANEPhenotype(createNetwork(), morphology);
+
+        Random random = new Random(42);
+        readings = createReadings(random, morphology.getNumSensors());
+        otherReadings = createReadings(random, morphology.getNumSensors());
+    }
+
+    @Benchmark
+    public Double2D stepFixedReadings() {
+        return phenotype.step(readings);
+    }
+
+    @Benchmark
+    public Double2D stepVaryingReadings() {
+        flip = !flip;
+        return phenotype.step(flip ? readings : otherReadings);
+    }
+
+    private static BasicNetwork createNetwork() {
+        NetworkDimensions dimensions = NetworkDimensions.DEFAULT;
+        return (BasicNetwork) new SANECODEC(dimensions)
+                .decode(SANEBenchmarks.createBlueprint(dimensions));
+    }
+
+    private static List<List<Double>> createReadings(Random random, int numSensors) {
+        List<List<Double>> readings = new ArrayList<>(numSensors);
+        for (int i = 0; i < numSensors; i++) {
+            readings.add(Collections.singletonList(random.nextDouble()));
+        }
+        return readings;
+    }
+}
@@ -0,0 +1,150 @@
+package za.redbridge.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import za.redbridge.controller.SANE.SANECheckpoint;
+
+/**
+ * Writes population checkpoints on a background thread so training does not wait for disk I/O,
+ * and deletes old checkpoints according to a retention policy: every Nth epoch is kept, as well
+ * as the last K epochs.
+ */
+public class CheckpointWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckpointWriter.class);
+
+    private static final String EXTENSION = ".ckpt";
+    private static final Pattern FILENAME_PATTERN = Pattern.compile("epoch-(\\d+)\\.ckpt");
+
+    private final Path directory;
+    private final ExecutorService executor;
+
+    private volatile int keepEvery = 1;
+    private volatile int keepLast = 1;
+
+    public CheckpointWriter(Path directory) {
+        this.directory = directory;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "checkpoint-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param keepEvery keep the checkpoint of every epoch that is a multiple of this, 0 to keep
+     *                  only the most recent ones
+     * @param keepLast  the number of most recent checkpoints to keep
+     */
+    public void setRetention(int keepEvery, int keepLast) {
+        if (keepEvery < 0 || keepLast < 1) {
+            throw new IllegalArgumentException("Invalid checkpoint retention: every " + keepEvery
+                    + ", last " + keepLast);
+        }
+        this.keepEvery = keepEvery;
+        this.keepLast = keepLast;
+    }
+
+    /** Queue a checkpoint to be written. */
+    public void write(final SANECheckpoint checkpoint, final int epoch) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeCheckpoint(checkpoint, epoch);
+                applyRetention();
+            }
+        });
+    }
+
+    /** Wait for all queued checkpoints to be written. */
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while writing checkpoints", e);
+        }
+    }
+
+    public static Path getCheckpointPath(Path directory, int epoch) {
+        return directory.resolve("epoch-" + epoch + EXTENSION);
+    }
+
+    /**
+     * @return the checkpoint with the highest epoch in the directory, or null if there is none
+     */
+    public static Path findLatestCheckpoint(Path directory) throws IOException {
+        List<Integer> epochs = listEpochs(directory);
+        if (epochs.isEmpty()) {
+            return null;
+        }
+        return getCheckpointPath(directory, epochs.get(epochs.size() - 1));
+    }
+
+    private void writeCheckpoint(SANECheckpoint checkpoint, int epoch) {
+        Path path = getCheckpointPath(directory, epoch);
+        Path tempPath = directory.resolve(path.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempPath)) {
+                checkpoint.write(out);
+            }
+            // Move into place so a crash never leaves a partial checkpoint
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Unable to write checkpoint for epoch " + epoch, e);
+        }
+    }
+
+    private void applyRetention() {
+        final int keepEvery = this.keepEvery;
+        final int keepLast = this.keepLast;
+        try {
+            List<Integer> epochs = listEpochs(directory);
+            for (int i = 0, n = epochs.size() - keepLast; i < n; i++) {
+                int epoch = epochs.get(i);
+                if (keepEvery == 0 || epoch % keepEvery != 0) {
+                    Files.deleteIfExists(getCheckpointPath(directory, epoch));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Unable to apply checkpoint retention", e);
+        }
+    }
+
+    // Sorted epochs of the checkpoints in the directory
+    private static List<Integer> listEpochs(Path directory) throws IOException {
+        List<Integer> epochs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path path : stream) {
+                Matcher matcher = FILENAME_PATTERN.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    epochs.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        Collections.sort(epochs);
+        return epochs;
+    }
+}
@@ -0,0 +1,159 @@
+package za.redbridge.controller;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.PrintStream;
+
+import za.redbridge.controller.NEATM.sensor.SensorMorphology;
+import za.redbridge.controller.SANE.SANENetwork;
+import za.redbridge.simulator.config.SimConfig;
+
+import static za.redbridge.controller.Utils.isBlank;
+
+/**
+ * Entry point of a worker process started by {@link WorkerProcessPool}. Evaluates the networks
+ * it is sent on standard input, one at a time, and writes the results to standard output. The
+ * simulation config and every evaluation setting come from the parent's command line arguments,
+ * and the sensor morphology is the first thing on standard input: its length as an int and the
+ * serialized {@link SensorMorphology}.
+ *
+ * Each request is a command int: {@link #EVALUATE} followed by the survival threshold and a
+ * {@link SANENetwork} as written by {@link SANENetwork#write}, answered with a
+ * {@link ScoreCalculator.Evaluation}; or {@link #SHUTDOWN}. The worker also exits when its input
+ * is closed, e.g. because the parent process died.
+ */
+public class EvaluationWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(EvaluationWorker.class);
+
+    static final int SHUTDOWN = 0;
+    static final int EVALUATE = 1;
+
+    public static void main(String[] args) throws IOException {
+        // Standard output carries the results, anything printed goes to standard error instead
+        PrintStream resultStream = System.out;
+        System.setOut(System.err);
+
+        Args options = new Args();
+        new JCommander(options, args);
+
+        // Resolved the same way as in Main
+        SimConfig simConfig;
+        if (!isBlank(options.configFile)) {
+            simConfig = new SimConfig(options.configFile);
+        } else {
+            simConfig = new SimConfig();
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        SensorMorphology morphology = readMorphology(in);
+
+        ScoreCalculator calculator = new ScoreCalculator(simConfig, options.simulationRuns,
+                morphology, options.parallelRuns);
+        calculator.setBatchedInference(options.batchedInference);
+        calculator.setSimulationPooling(!options.disableSimulationPool);
+        calculator.setAdaptiveRuns(options.adaptiveRuns, options.adaptiveZ);
+        if (options.raceInterval > 0) {
+            calculator.setRacing(options.raceInterval, options.maxTeamFitness,
+                    options.raceOptimism);
+            calculator.setRaceCheck(options.raceCheck);
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(resultStream));
+        serve(calculator, in, out);
+    }
+
+    private static SensorMorphology readMorphology(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try (ObjectInputStream objectIn =
+                new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (SensorMorphology) objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to read the sensor morphology", e);
+        }
+    }
+
+    private static void serve(ScoreCalculator calculator, DataInputStream in,
+            DataOutputStream out) throws IOException {
+        while (true) {
+            int command;
+            try {
+                command = in.readInt();
+            } catch (EOFException e) {
+                log.debug("Input closed, worker exiting");
+                return;
+            }
+
+            switch (command) {
+                case SHUTDOWN:
+                    return;
+                case EVALUATE:
+                    double threshold = in.readDouble();
+                    SANENetwork network = SANENetwork.read(in);
+                    calculator.evaluate(network, threshold).write(out);
+                    out.flush();
+                    break;
+                default:
+                    throw new IOException("Unknown command: " + command);
+            }
+        }
+    }
+
+    private static class Args {
+        @Parameter(names = "-c", required = true, description = "Simulation config file to"
+                + " load, empty for the simulator's default config")
+        private String configFile;
+
+        @Parameter(names = "--sim-runs", description = "Number of simulation runs per network")
+        private int simulationRuns = 5;
+
+        @Parameter(names = "--parallel-runs", description = "Run the simulations of a network at"
+                + " the same time")
+        private boolean parallelRuns = false;
+
+        @Parameter(names = "--batched-inference", description = "Evaluate the network for all"
+                + " robots in a simulation at once")
+        private boolean batchedInference = false;
+
+        @Parameter(names = "--no-sim-pool", description = "Build a new simulation for every"
+                + " network")
+        private boolean disableSimulationPool = false;
+
+        @Parameter(names = "--adaptive-runs", description = "Initial simulation runs per network,"
+                + " 0 to always do all the runs")
+        private int adaptiveRuns = 0;
+
+        @Parameter(names = "--adaptive-z", description = "Width of the adaptive confidence"
+                + " interval in standard errors")
+        private double adaptiveZ = 1.96;
+
+        @Parameter(names = "--race-interval", description = "Ticks between racing checks, 0 to"
+                + " disable racing")
+        private int raceInterval = 0;
+
+        @Parameter(names = "--race-max-team-fitness", description = "The highest team fitness a"
+                + " simulation run can reach")
+        private double maxTeamFitness = 0;
+
+        @Parameter(names = "--race-optimism", description = "Assumed best rate of team fitness"
+                + " growth for the rest of a raced run")
+        private double raceOptimism = 2;
+
+        @Parameter(names = "--race-check", description = "Replay raced runs without racing and"
+                + " fail if the results differ")
+        private boolean raceCheck = false;
+    }
+}
@@ -6,6 +6,7 @@ import com.beust.jcommander.Parameter;
 import org.encog.Encog;
 import org.encog.engine.network.activation.ActivationSigmoid;
 import org.encog.ml.MLMethod;
+import org.encog.ml.MLRegression;
 import org.encog.ml.MethodFactory;
 import org.encog.neural.neat.NEATNetwork;
 import org.encog.neural.networks.BasicNetwork;
@@ -14,10 +15,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import za.redbridge.controller.NEATM.sensor.SensorMorphology;
 import za.redbridge.controller.SANE.BlueprintGenome;
+import za.redbridge.controller.SANE.FitnessCache;
+import za.redbridge.controller.SANE.NetworkDimensions;
+import za.redbridge.controller.SANE.SANECODEC;
+import za.redbridge.controller.SANE.SANECheckpoint;
 import za.redbridge.controller.SANE.SANEControllerEvolution;
+import za.redbridge.controller.SANE.Trace;
 import za.redbridge.simulator.config.SimConfig;
 
 
@@ -35,12 +51,26 @@ public class Main {
 
     private static final double CONVERGENCE_SCORE = 110;
 
+    // One network output per wheel
+    private static final int WHEEL_COUNT = 2;
+
     public static void main(String[] args) throws IOException {
         Args options = new Args();
         new JCommander(options, args);
 
         log.info(options.toString());
 
+        if (!isBlank(options.tracePath)) {
+            enableTrace(Paths.get(options.tracePath));
+        } else if (options.traceEvery > 0) {
+            throw new IllegalArgumentException("--trace is required with --trace-every");
+        }
+
+        if (options.syntheticScore) {
+            runSynthetic(options);
+            return;
+        }
+
         SimConfig simConfig;
         if (!isBlank(options.configFile)) {
             simConfig = new SimConfig(options.configFile);
@@ -52,34 +82,302 @@ public class Main {
         SensorMorphology morphology = null;
         morphology = new KheperaIIIMorphology();
         ScoreCalculator calculateScore =
-                new ScoreCalculator(simConfig, options.simulationRuns, morphology);
+                new ScoreCalculator(simConfig, options.simulationRuns, morphology,
+                        options.parallelRuns);
+        calculateScore.setBatchedInference(options.batchedInference);
+        if (options.raceInterval > 0) {
+            if (options.maxTeamFitness <= 0) {
+                throw new IllegalArgumentException(
+                        "--race-max-team-fitness is required with --race-interval");
+            }
+            calculateScore.setRacing(options.raceInterval, options.maxTeamFitness,
+                    options.raceOptimism);
+            calculateScore.setRaceCheck(options.raceCheck);
+        }
+        calculateScore.setAdaptiveRuns(options.adaptiveRuns, options.adaptiveZ);
+        calculateScore.setSimulationPooling(!options.disableSimulationPool);
+
+        WorkerProcessPool workerPool = null;
+        if (options.workers > 0 && isBlank(options.genomePath)) {
+            workerPool = new WorkerProcessPool(options.workers, getWorkerArgs(options),
+                    morphology);
+            calculateScore.setWorkerPool(workerPool);
+        }
 
         if (!isBlank(options.genomePath)) {
             //BlueprintGenome gen = (BlueprintGenome)readObjectFromFile(options.genomePath);
-            BasicNetwork network = (BasicNetwork)readObjectFromFile(options.genomePath);
+            MLRegression network = (MLRegression) readObjectFromFile(options.genomePath);
             calculateScore.demo(network);
             return;
         }
 
 
-        SANEControllerEvolution sane = new SANEControllerEvolution(new MethodFactory(){ @Override public MLMethod
-                                                                                        factor(){System.out.println("Stub");return null; }},
-                calculateScore,options.populationSize);
+        // Worker processes are sent the flat networks
+        final boolean flatNetwork =
+                options.flatNetwork || options.batchedInference || options.workers > 0;
+        final Map<String, String> settings = getRunSettings(options, flatNetwork);
 
-        log.debug("Population of size " + options.populationSize + " initialized");
+        final boolean resume = !isBlank(options.populationPath);
+        Path resultsDirectory = null;
+        SANEControllerEvolution sane;
+        if (resume) {
+            Path checkpointPath = findCheckpoint(Paths.get(options.populationPath));
+            resultsDirectory = getResultsDirectory(options, checkpointPath);
 
-        final StatsRecorder statsRecorder = new StatsRecorder(sane.getGenetic(), calculateScore);
-        statsRecorder.recordIterationStats();
+            SANECheckpoint checkpoint = SANECheckpoint.read(checkpointPath);
+            checkSettings(checkpoint.getSettings(), settings);
+            if (checkpoint.getDimensions().getInputSize() != morphology.getNumSensors()) {
+                throw new IllegalArgumentException("Checkpoint networks have "
+                        + checkpoint.getDimensions().getInputSize() + " inputs but the morphology has "
+                        + morphology.getNumSensors() + " sensors");
+            }
+            sane = new SANEControllerEvolution(calculateScore, checkpoint);
+            log.info("Resuming from " + checkpointPath + " at epoch " + checkpoint.getIteration());
+        } else {
+            NetworkDimensions dimensions = getDimensions(options, morphology);
+            log.info("Network dimensions: " + dimensions);
 
-        for (int i = 0; i < options.numIterations; i++) {
+            sane = new SANEControllerEvolution(new MethodFactory(){ @Override public MLMethod
+                                                                    factor(){System.out.println("Stub");return null; }},
+                    calculateScore,options.populationSize, dimensions);
+        }
+        configureEvolution(sane, options, flatNetwork);
+
+        final StatsRecorder statsRecorder;
+        if (resume) {
+            statsRecorder = new StatsRecorder(sane.getGenetic(), calculateScore, resultsDirectory);
+            statsRecorder.setCheckpointRetention(options.checkpointEvery,
+                    options.checkpointKeepLast);
+            statsRecorder.setCheckpointSettings(settings);
+        } else {
+            log.debug("Population of size " + options.populationSize + " initialized");
+
+            statsRecorder = new StatsRecorder(sane.getGenetic(), calculateScore);
+            statsRecorder.setCheckpointRetention(options.checkpointEvery,
+                    options.checkpointKeepLast);
+            statsRecorder.setCheckpointSettings(settings);
+            statsRecorder.recordIterationStats();
+        }
+
+        // A resumed run continues up to the same total number of iterations
+        for (int i = sane.getGenetic().getIteration(); i < options.numIterations; i++) {
             sane.iteration();
             statsRecorder.recordIterationStats();
+            dumpTraceIfDue(options, sane.getGenetic().getIteration());
+        }
+        statsRecorder.close();
+        if (workerPool != null) {
+            workerPool.close();
         }
 
         log.debug("Training complete");
         Encog.getInstance().shutdown();
     }
 
+    /**
+     * Evolve against a {@link SyntheticScore} instead of the simulation, to measure the
+     * evolutionary algorithm on its own. Only the time taken and the scores are logged, no stats
+     * or populations are saved.
+     */
+    private static void runSynthetic(Args options) {
+        NetworkDimensions dimensions = getDimensions(options, new KheperaIIIMorphology());
+        log.info("Synthetic score, network dimensions: " + dimensions);
+
+        SyntheticScore score =
+                new SyntheticScore(TimeUnit.MICROSECONDS.toNanos(options.syntheticCostMicros));
+        // The phenotype factory is not used
+        SANEControllerEvolution sane = new SANEControllerEvolution(null, score,
+                options.populationSize, dimensions);
+        configureEvolution(sane, options, options.flatNetwork);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < options.numIterations; i++) {
+            final long iterationStart = System.nanoTime();
+            final long evaluations = score.getEvaluations();
+            sane.iteration();
+
+            final double seconds = (System.nanoTime() - iterationStart) / 1e9;
+            log.info(String.format("Epoch %d: %.3f s, %d evaluations (%.0f/s), best score %.4f",
+                    sane.getGenetic().getIteration(), seconds,
+                    score.getEvaluations() - evaluations,
+                    (score.getEvaluations() - evaluations) / seconds,
+                    sane.getGenetic().getBestGenome().getScore()));
+            dumpTraceIfDue(options, sane.getGenetic().getIteration());
+        }
+        log.info(String.format("%d epochs in %.3f s, %d evaluations", options.numIterations,
+                (System.nanoTime() - start) / 1e9, score.getEvaluations()));
+
+        sane.getGenetic().finishTraining();
+        Encog.getInstance().shutdown();
+    }
+
+    // The input layer has one neuron per sensor of the morphology
+    private static NetworkDimensions getDimensions(Args options, SensorMorphology morphology) {
+        if (options.chromosomeLength > 0) {
+            return new NetworkDimensions(morphology.getNumSensors(), options.hiddenSize,
+                    WHEEL_COUNT, options.chromosomeLength);
+        }
+        return new NetworkDimensions(morphology.getNumSensors(), options.hiddenSize, WHEEL_COUNT);
+    }
+
+    private static void configureEvolution(SANEControllerEvolution sane, Args options,
+            boolean flatNetwork) {
+        if (flatNetwork) {
+            sane.getGenetic().setCODEC(new SANECODEC(sane.getGenetic().getDimensions(), true));
+        }
+        if (options.fitnessCacheSize > 0) {
+            sane.getGenetic().setFitnessCache(new FitnessCache(options.fitnessCacheSize));
+        }
+        sane.getGenetic().setSteadyState(options.steadyState);
+    }
+
+    /**
+     * The evaluation options of this run, as arguments for the worker processes. Every option
+     * that affects evaluation is passed, so the workers never fall back to defaults of their own.
+     */
+    private static List<String> getWorkerArgs(Args options) {
+        List<String> args = new ArrayList<>();
+        // Empty for the simulator's default config, as here
+        args.add("-c");
+        args.add(isBlank(options.configFile)
+                ? "" : Paths.get(options.configFile).toAbsolutePath().toString());
+        args.add("--sim-runs");
+        args.add(String.valueOf(options.simulationRuns));
+        if (options.parallelRuns) {
+            args.add("--parallel-runs");
+        }
+        if (options.batchedInference) {
+            args.add("--batched-inference");
+        }
+        if (options.disableSimulationPool) {
+            args.add("--no-sim-pool");
+        }
+        args.add("--adaptive-runs");
+        args.add(String.valueOf(options.adaptiveRuns));
+        args.add("--adaptive-z");
+        args.add(String.valueOf(options.adaptiveZ));
+        args.add("--race-interval");
+        args.add(String.valueOf(options.raceInterval));
+        args.add("--race-max-team-fitness");
+        args.add(String.valueOf(options.maxTeamFitness));
+        args.add("--race-optimism");
+        args.add(String.valueOf(options.raceOptimism));
+        if (options.raceCheck) {
+            args.add("--race-check");
+        }
+        return args;
+    }
+
+    /**
+     * Turn on tracing and dump the trace buffers to the given file when the JVM exits, including
+     * when training is interrupted.
+     */
+    private static void enableTrace(final Path path) {
+        Trace.setEnabled(true);
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dumpTrace(path);
+            }
+        }, "trace-dump"));
+    }
+
+    // With --trace-every, rewrite the trace file every that many epochs while training runs
+    private static void dumpTraceIfDue(Args options, int epoch) {
+        if (options.traceEvery > 0 && epoch % options.traceEvery == 0) {
+            dumpTrace(Paths.get(options.tracePath));
+        }
+    }
+
+    private static void dumpTrace(Path path) {
+        try (Writer writer = Files.newBufferedWriter(path, Charset.defaultCharset())) {
+            Trace.dump(writer);
+        } catch (IOException e) {
+            log.error("Unable to write trace", e);
+        }
+    }
+
+    /**
+     * The settings that decide how genomes are decoded, evaluated and selected, stored with the
+     * checkpoints so that a resumed run can be checked against the run it continues. Settings
+     * that only change how fast the run goes, like --workers or --parallel-runs, are left out.
+     */
+    private static Map<String, String> getRunSettings(Args options, boolean flatNetwork) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("-c", String.valueOf(options.configFile));
+        settings.put("--sim-runs", String.valueOf(options.simulationRuns));
+        settings.put("--flat-network", String.valueOf(flatNetwork));
+        settings.put("--batched-inference", String.valueOf(options.batchedInference));
+        settings.put("--fitness-cache", String.valueOf(options.fitnessCacheSize));
+        settings.put("--steady-state", String.valueOf(options.steadyState));
+        settings.put("--adaptive-runs", String.valueOf(options.adaptiveRuns));
+        settings.put("--adaptive-z", String.valueOf(options.adaptiveZ));
+        settings.put("--race-interval", String.valueOf(options.raceInterval));
+        settings.put("--race-max-team-fitness", String.valueOf(options.maxTeamFitness));
+        settings.put("--race-optimism", String.valueOf(options.raceOptimism));
+        return settings;
+    }
+
+    /**
+     * Refuse to resume with settings other than those of the run that wrote the checkpoint, as
+     * that would silently change the experiment.
+     */
+    private static void checkSettings(Map<String, String> recorded, Map<String, String> settings) {
+        if (recorded == null) {
+            log.warn("The checkpoint does not record the settings of its run, not checking them");
+            return;
+        }
+
+        StringBuilder differences = new StringBuilder();
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            String value = recorded.get(setting.getKey());
+            if (!setting.getValue().equals(value)) {
+                differences.append("\n\t").append(setting.getKey()).append(": ")
+                        .append(setting.getValue()).append(", the checkpoint has ").append(value);
+            }
+        }
+        if (differences.length() > 0) {
+            throw new IllegalArgumentException(
+                    "Settings differ from the run that wrote the checkpoint:" + differences);
+        }
+    }
+
+    /**
+     * The results directory to continue recording into: --results-directory, or the directory
+     * holding the populations directory the checkpoint is in.
+     */
+    private static Path getResultsDirectory(Args options, Path checkpointPath) {
+        if (!isBlank(options.resultsDirectory)) {
+            return Paths.get(options.resultsDirectory);
+        }
+
+        Path directory = checkpointPath.toAbsolutePath().getParent();
+        if (directory == null || directory.getParent() == null
+                || !"populations".equals(String.valueOf(directory.getFileName()))) {
+            throw new IllegalArgumentException("The checkpoint " + checkpointPath + " is not in"
+                    + " the populations directory of a results directory, use --results-directory");
+        }
+        return directory.getParent();
+    }
+
+    /**
+     * Find the checkpoint to resume from: the given checkpoint file, or the latest checkpoint in
+     * a results directory or its populations directory.
+     */
+    private static Path findCheckpoint(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return path;
+        }
+
+        Path populations = path.resolve("populations");
+        Path checkpoint = CheckpointWriter.findLatestCheckpoint(
+                Files.isDirectory(populations) ? populations : path);
+        if (checkpoint == null) {
+            throw new IOException("No checkpoint found in " + path);
+        }
+        return checkpoint;
+    }
+
     private static class Args {
         @Parameter(names = "-c", description = "Simulation config file to load")
         private String configFile = "config/mediumSimConfig.yml";
@@ -90,9 +388,91 @@ public class Main {
         @Parameter(names = "-p", description = "Initial population size")
         private int populationSize = 100;
 
-        @Parameter(names = "--sim-runs", description = "Number of simulation runs per iteration")
+        @Parameter(names = "--hidden-size", description = "Number of hidden neurons in each network")
+        private int hiddenSize = 5;
+
+        @Parameter(names = "--chromosome-length", description = "Number of connections of each"
+                + " hidden neuron, 0 for half the number of inputs and outputs")
+        private int chromosomeLength = 0;
+
+        @Parameter(names = "--sim-runs", description = "Number of simulation runs per iteration,"
+                + " the maximum with --adaptive-runs")
         private int simulationRuns = 5;
 
+        @Parameter(names = "--parallel-runs", description = "Run the simulation runs of each"
+                + " genome at the same time on separate simulations")
+        private boolean parallelRuns = false;
+
+        @Parameter(names = "--flat-network", description = "Decode blueprints to the compact"
+                + " flat-array network instead of an Encog BasicNetwork")
+        private boolean flatNetwork = false;
+
+        @Parameter(names = "--batched-inference", description = "Evaluate the network for all"
+                + " robots in a simulation at once (implies --flat-network). Robots act on the"
+                + " previous tick's readings, which changes their behaviour and scores")
+        private boolean batchedInference = false;
+
+        @Parameter(names = "--fitness-cache", description = "Maximum number of blueprint scores"
+                + " to cache by blueprint content, 0 to disable")
+        private int fitnessCacheSize = 0;
+
+        @Parameter(names = "--steady-state", description = "Replace the worst blueprint as each"
+                + " evaluation finishes instead of evolving whole generations. Per-epoch stats"
+                + " count an evaluation in the epoch in which it finishes")
+        private boolean steadyState = false;
+
+        @Parameter(names = "--workers", description = "Run the simulations in this many worker"
+                + " processes instead of in this JVM (implies --flat-network), 0 to disable")
+        private int workers = 0;
+
+        @Parameter(names = "--no-sim-pool", description = "Build a new simulation for every"
+                + " genome instead of reusing one per thread")
+        private boolean disableSimulationPool = false;
+
+        @Parameter(names = "--adaptive-runs", description = "Start each genome with this many"
+                + " simulation runs and add runs while its score may be either side of the"
+                + " selection cutoff, 0 to always do all the runs")
+        private int adaptiveRuns = 0;
+
+        @Parameter(names = "--adaptive-z", description = "Width of the confidence interval used"
+                + " by --adaptive-runs, in standard errors")
+        private double adaptiveZ = 1.96;
+
+        @Parameter(names = "--race-interval", description = "Check every N ticks whether a"
+                + " genome can still survive selection and stop evaluating it if not, 0 to always"
+                + " run the simulations in full")
+        private int raceInterval = 0;
+
+        @Parameter(names = "--race-max-team-fitness", description = "The highest team fitness a"
+                + " simulation run can reach, used to bound the scores of raced genomes")
+        private double maxTeamFitness = 0;
+
+        @Parameter(names = "--race-optimism", description = "Assumed best rate of team fitness"
+                + " growth for the rest of a raced run, as a multiple of the rate that reaches"
+                + " the max team fitness over a whole run")
+        private double raceOptimism = 2;
+
+        @Parameter(names = "--race-check", description = "Replay every raced simulation run"
+                + " that is not stopped without racing and fail if the results differ")
+        private boolean raceCheck = false;
+
+        @Parameter(names = "--synthetic-score", description = "Score networks with a cheap"
+                + " function of their outputs instead of the simulation, to measure the"
+                + " evolutionary algorithm on its own")
+        private boolean syntheticScore = false;
+
+        @Parameter(names = "--synthetic-cost", description = "Microseconds to spend on each"
+                + " evaluation with --synthetic-score, standing in for the simulation")
+        private long syntheticCostMicros = 0;
+
+        @Parameter(names = "--checkpoint-every", description = "Keep the population checkpoint of"
+                + " every Nth epoch, 0 to keep only the most recent ones")
+        private int checkpointEvery = 1;
+
+        @Parameter(names = "--checkpoint-keep-last", description = "Number of most recent"
+                + " population checkpoints to keep")
+        private int checkpointKeepLast = 1;
+
         @Parameter(names = "--conn-density", description = "Adjust the initial connection density"
                 + " for the population")
         private double connectionDensity = 0.5;
@@ -108,21 +488,54 @@ public class Main {
         private String morphologyPath = null;
 
         @Parameter(names = "--population", description = "To resume a previous controller, provide"
-                + " the path to a serialized population")
+                + " the path to a population checkpoint or the results directory of the run")
         private String populationPath = null;
 
+        @Parameter(names = "--results-directory", description = "When resuming, the results"
+                + " directory to continue recording into, by default the one the checkpoint is in")
+        private String resultsDirectory = null;
+
+        @Parameter(names = "--trace", description = "Record trace events of the training threads"
+                + " and write the most recent ones to the given file on exit")
+        private String tracePath = null;
+
+        @Parameter(names = "--trace-every", description = "With --trace, also write the trace file"
+                + " every this many epochs while training runs, 0 to write it only on exit")
+        private int traceEvery = 0;
+
         @Override
         public String toString() {
             return "Options: \n"
                     + "\tConfig file path: " + configFile + "\n"
                     + "\tNumber of simulation steps: " + numIterations + "\n"
                     + "\tPopulation size: " + populationSize + "\n"
+                    + "\tHidden neurons: " + hiddenSize + "\n"
+                    + "\tChromosome length: " + chromosomeLength + "\n"
                     + "\tNumber of simulation tests per iteration: " + simulationRuns + "\n"
+                    + "\tParallel simulation runs: " + parallelRuns + "\n"
+                    + "\tFlat network: " + flatNetwork + "\n"
+                    + "\tBatched inference: " + batchedInference + "\n"
+                    + "\tFitness cache size: " + fitnessCacheSize + "\n"
+                    + "\tSteady-state evolution: " + steadyState + "\n"
+                    + "\tWorker processes: " + workers + "\n"
+                    + "\tSimulation pool: " + !disableSimulationPool + "\n"
+                    + "\tAdaptive runs: " + adaptiveRuns + " (z = " + adaptiveZ + ")\n"
+                    + "\tRace interval: " + raceInterval + "\n"
+                    + "\tRace max team fitness: " + maxTeamFitness + "\n"
+                    + "\tRace optimism: " + raceOptimism + "\n"
+                    + "\tRace check: " + raceCheck + "\n"
+                    + "\tSynthetic score: " + syntheticScore + " (cost = " + syntheticCostMicros
+                    + " us)\n"
+                    + "\tCheckpoint every: " + checkpointEvery + "\n"
+                    + "\tCheckpoints kept: " + checkpointKeepLast + "\n"
                     + "\tInitial connection density: " + connectionDensity + "\n"
                     + "\tDemo network config path: " + genomePath + "\n"
                     + "\tRunning with the control case: " + control + "\n"
                     + "\tMorphology path: " + morphologyPath + "\n"
-                    + "\tPopulation path: " + populationPath;
+                    + "\tPopulation path: " + populationPath + "\n"
+                    + "\tResults directory: " + resultsDirectory + "\n"
+                    + "\tTrace path: " + tracePath + "\n"
+                    + "\tTrace every: " + traceEvery;
         }
     }
 }
@@ -0,0 +1,63 @@
+package za.redbridge.controller.NEATM;
+
+import java.util.Arrays;
+
+/**
+ * Map from long keys to int values with open addressing and linear probing, storing keys and
+ * values in primitive arrays so lookups neither box nor allocate. Fixed capacity, sized for the
+ * number of entries up front, and not thread-safe.
+ */
+class LongIntHashMap {
+
+    /** Value returned by {@link #get(long)} for a missing key. */
+    static final int NO_VALUE = -1;
+
+    private final long[] keys;
+    private final int[] values;
+    private final boolean[] used;
+    private final int mask;
+
+    /**
+     * @param expectedSize the largest number of entries that will be put in the map
+     */
+    LongIntHashMap(int expectedSize) {
+        // At most half full, so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    void put(long key, int value) {
+        int slot = slot(key);
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+    }
+
+    /** The value for the key, or {@link #NO_VALUE} if there is none. */
+    int get(long key) {
+        int slot = slot(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    void clear() {
+        Arrays.fill(used, false);
+    }
+
+    private int slot(long key) {
+        // Spread the bits, neuron ids are small consecutive numbers
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -13,11 +13,10 @@ import org.encog.neural.neat.training.NEATLinkGene;
 import org.encog.neural.neat.training.NEATNeuronGene;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import za.redbridge.controller.NEATM.sensor.SensorModel;
 import za.redbridge.controller.NEATM.sensor.SensorMorphology;
@@ -31,6 +30,12 @@ public class NEATMCODEC implements GeneticCODEC, Serializable {
 
     private static final long serialVersionUID = -5767773750949848124L;
 
+    /** Number of distinct morphologies kept, the cache is emptied when it grows past this. */
+    private static final int MORPHOLOGY_CACHE_SIZE = 4096;
+
+    // Decoded morphologies by sensor models, so genomes with the same sensors share one
+    private transient Map<List<SensorModel>, SensorMorphology> morphologies;
+
     @Override
     public MLMethod decode(Genome genome)
     {
@@ -44,31 +49,35 @@ public class NEATMCODEC implements GeneticCODEC, Serializable {
                     "The first neuron must be the bias neuron, this genome is invalid.");
         }
 
-        final List<NEATLink> links = new ArrayList<NEATLink>();
-        final ActivationFunction[] afs = new ActivationFunction[neuronsChromosome.size()];
-
-        for (int i = 0; i < afs.length; i++) {
-            afs[i] = neuronsChromosome.get(i).getActivationFunction();
-        }
-
-        final Map<Long, Integer> lookup = new HashMap<>();
-        for (int i = 0; i < neuronsChromosome.size(); i++) {
+        final int neuronCount = neuronsChromosome.size();
+        final ActivationFunction[] afs = new ActivationFunction[neuronCount];
+        final LongIntHashMap lookup = new LongIntHashMap(neuronCount);
+        for (int i = 0; i < neuronCount; i++) {
             final NEATNeuronGene neuronGene = neuronsChromosome.get(i);
+            afs[i] = neuronGene.getActivationFunction();
             lookup.put(neuronGene.getId(), i);
         }
 
         // loop over connections
-        for (int i = 0; i < linksChromosome.size(); i++) {
+        final int linkGeneCount = linksChromosome.size();
+        int enabledCount = 0;
+        for (int i = 0; i < linkGeneCount; i++) {
+            if (linksChromosome.get(i).isEnabled()) {
+                enabledCount++;
+            }
+        }
+
+        final NEATLink[] links = new NEATLink[enabledCount];
+        int linkCount = 0;
+        for (int i = 0; i < linkGeneCount; i++) {
             final NEATLinkGene linkGene = linksChromosome.get(i);
             if (linkGene.isEnabled()) {
-                links.add(new NEATLink(lookup.get(linkGene.getFromNeuronID()),
-                        lookup.get(linkGene.getToNeuronID()), linkGene
-                        .getWeight()));
+                links[linkCount++] = new NEATLink(getNeuronIndex(lookup, linkGene.getFromNeuronID()),
+                        getNeuronIndex(lookup, linkGene.getToNeuronID()), linkGene.getWeight());
             }
-
         }
 
-        Collections.sort(links);
+        Arrays.sort(links);
 
         // Create the sensor morphology
         final int inputCount = neatGenome.getInputCount();
@@ -79,15 +88,47 @@ public class NEATMCODEC implements GeneticCODEC, Serializable {
             sensorModels[i] = inputNeuron.getSensorConfiguration().toSensorModel();
         }
 
-        SensorMorphology morphology = new SensorMorphology(sensorModels);
+        SensorMorphology morphology = getMorphology(sensorModels);
 
-        NEATMNetwork network = new NEATMNetwork(inputCount, neatGenome.getOutputCount(), links,
-                afs, morphology);
+        // The network copies the links out of the list, no need for an ArrayList
+        NEATMNetwork network = new NEATMNetwork(inputCount, neatGenome.getOutputCount(),
+                Arrays.asList(links), afs, morphology);
 
         network.setActivationCycles(pop.getActivationCycles());
         return network;
     }
 
+    private static int getNeuronIndex(LongIntHashMap lookup, long neuronId) {
+        final int index = lookup.get(neuronId);
+        if (index == LongIntHashMap.NO_VALUE) {
+            throw new NeuralNetworkError("Link to missing neuron " + neuronId
+                    + ", this genome is invalid.");
+        }
+        return index;
+    }
+
+    /** The morphology for the sensor models, shared with other genomes with the same sensors. */
+    private SensorMorphology getMorphology(SensorModel[] sensorModels) {
+        Map<List<SensorModel>, SensorMorphology> morphologies = this.morphologies;
+        if (morphologies == null) {
+            morphologies = this.morphologies = new ConcurrentHashMap<>();
+        }
+
+        final List<SensorModel> key = Arrays.asList(sensorModels);
+        SensorMorphology morphology = morphologies.get(key);
+        if (morphology == null) {
+            if (morphologies.size() >= MORPHOLOGY_CACHE_SIZE) {
+                morphologies.clear();
+            }
+            morphology = new SensorMorphology(sensorModels);
+            SensorMorphology existing = morphologies.putIfAbsent(key, morphology);
+            if (existing != null) {
+                morphology = existing;
+            }
+        }
+        return morphology;
+    }
+
     @Override
     public Genome encode(MLMethod phenotype) {
         throw new GeneticError("Encoding of a NEAT network is not supported.");
@@ -84,6 +84,33 @@ public class SensorModel implements Serializable {
         return new SensorModel(type, bearing, orientation, range, fieldOfView);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SensorModel)) {
+            return false;
+        }
+
+        SensorModel other = (SensorModel) o;
+        return type == other.type
+                && Float.compare(bearing, other.bearing) == 0
+                && Float.compare(orientation, other.orientation) == 0
+                && Float.compare(range, other.range) == 0
+                && Float.compare(fieldOfView, other.fieldOfView) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type.hashCode();
+        result = 31 * result + Float.floatToIntBits(bearing);
+        result = 31 * result + Float.floatToIntBits(orientation);
+        result = 31 * result + Float.floatToIntBits(range);
+        result = 31 * result + Float.floatToIntBits(fieldOfView);
+        return result;
+    }
+
     public AgentSensor createSensor() {
         switch (type) {
             case BOTTOM_PROXIMITY:
@@ -3,9 +3,6 @@ package za.redbridge.controller.NEATM.sensor;
 import java.io.Serializable;
 import java.util.Arrays;
 
-import za.redbridge.simulator.khepera.BottomProximitySensor;
-import za.redbridge.simulator.khepera.ProximitySensor;
-import za.redbridge.simulator.khepera.UltrasonicSensor;
 import za.redbridge.simulator.sensor.AgentSensor;
 
 /**
@@ -31,22 +28,34 @@ public class SensorMorphology implements Serializable {
         return sensorModels.length;
     }
 
-    public AgentSensor getSensor(int index) {
+    public SensorModel getSensorModel(int index) {
         checkValidIndex(index);
+        return sensorModels[index];
+    }
+
+    /**
+     * Create a new sensor for the sensor model at the index. Sensors hold the state of the robot
+     * they are attached to, so every robot needs its own and they cannot be shared.
+     */
+    public AgentSensor getSensor(int index) {
+        return getSensorModel(index).createSensor();
+    }
 
-        SensorModel config = sensorModels[index];
-        switch (config.getType()) {
-            case BOTTOM_PROXIMITY:
-                return new BottomProximitySensor();
-            case PROXIMITY:
-                return new ProximitySensor(config.getBearing(), config.getOrientation(),
-                        config.getRange(), config.getFieldOfView());
-            case ULTRASONIC:
-                return new UltrasonicSensor(config.getBearing(), config.getOrientation(),
-                        config.getRange(), config.getFieldOfView());
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
         }
 
-        return null;
+        return Arrays.equals(sensorModels, ((SensorMorphology) o).sensorModels);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(sensorModels);
     }
 
     private void checkValidIndex(int index) {
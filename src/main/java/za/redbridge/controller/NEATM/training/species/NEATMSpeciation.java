@@ -1,8 +1,26 @@
 package za.redbridge.controller.NEATM.training.species;
 
+import org.encog.EncogError;
 import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.species.Species;
+import org.encog.ml.ea.train.EvolutionaryAlgorithm;
+import org.encog.neural.neat.NEATPopulation;
+import org.encog.neural.neat.training.NEATLinkGene;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import za.redbridge.controller.NEATM.sensor.parameter.spec.ParameterType;
 import za.redbridge.controller.NEATM.training.NEATMGenome;
@@ -12,54 +30,142 @@ import za.redbridge.controller.NEAT.training.species.NEATSpeciation;
 /**
  * Adds an additional term to the NEAT speciation that accounts for sensor parameters.
  *
+ * The threshold speciation compares every genome against every species leader, one genome at a
+ * time. Before it runs, the distances of all the genomes to the current leaders are worked out in
+ * parallel, from a profile of each genome that holds its link and sensor genes in flat arrays.
+ * Genomes are never changed once created (offspring are copies), so the profiles and the
+ * distances are kept from one generation to the next for the genomes that survive, and dropped
+ * for the rest.
+ *
  * Created by jamie on 2014/10/21.
  */
 public class NEATMSpeciation extends NEATSpeciation {
 
     private static final long serialVersionUID = -505824828539787086L;
 
+    private static final ParameterType[] PARAMETER_TYPES = ParameterType.values();
+    private static final int NUM_PARAMETERS = PARAMETER_TYPES.length;
+
+    /** Shared pool for working out distances. */
+    private static ExecutorService distanceExecutor;
+
+    private transient EvolutionaryAlgorithm owner;
+
+    // Distances of genomes to leaders and the profiles of genomes, by genome identity
+    private transient Map<Pair, Double> distances;
+    private transient Map<Genome, Profile> profiles;
+
+    @Override
+    public void init(EvolutionaryAlgorithm theOwner) {
+        super.init(theOwner);
+        this.owner = theOwner;
+    }
+
+    @Override
+    public void performSpeciation(List<Genome> genomeList) {
+        List<Genome> leaders = new ArrayList<>();
+        for (Species species : owner.getPopulation().getSpecies()) {
+            if (species.getLeader() != null) {
+                leaders.add(species.getLeader());
+            }
+        }
+
+        prune(genomeList, leaders);
+        computeDistances(genomeList, leaders);
+
+        super.performSpeciation(genomeList);
+    }
+
     @Override
     public double getCompatibilityScore(Genome gen1, Genome gen2) {
-        double score = super.getCompatibilityScore(gen1, gen2);
+        if (distances != null) {
+            Double distance = distances.get(new Pair(gen1, gen2));
+            if (distance != null) {
+                return distance;
+            }
+        }
 
+        // A leader of a species created during this speciation
+        return getCompatibilityScore(getProfile(gen1), getProfile(gen2));
+    }
+
+    private double getCompatibilityScore(Profile genome1, Profile genome2) {
+        return getLinkScore(genome1, genome2) + getSensorScore(genome1, genome2);
+    }
+
+    /** Same as {@link NEATSpeciation#getCompatibilityScore}, over the link arrays. */
+    private double getLinkScore(Profile genome1, Profile genome2) {
+        int numDisjoint = 0;
+        int numExcess = 0;
         int numMatched = 0;
+        double weightDifference = 0;
+
+        final long[] genome1Links = genome1.linkIds;
+        final long[] genome2Links = genome2.linkIds;
+        final int genome1Size = genome1Links.length;
+        final int genome2Size = genome2Links.length;
 
-        ParameterType[] parameterTypes = ParameterType.values();
-        final int numParameters = parameterTypes.length;
-        double[] differences = new double[numParameters];
+        int g1 = 0;
+        int g2 = 0;
+
+        while (g1 < genome1Size && g2 < genome2Size) {
+            long id1 = genome1Links[g1];
+            long id2 = genome2Links[g2];
+
+            if (id1 < id2) {
+                numDisjoint++;
+                g1++;
+            } else if (id1 > id2) {
+                numDisjoint++;
+                g2++;
+            } else { // id1 == id2
+                // Both normalized by the weight range of the first genome's population
+                double weight1 = genome1.linkWeights[g1] / genome1.weightRange;
+                double weight2 = genome2.linkWeights[g2] / genome1.weightRange;
+                weightDifference += Math.abs(weight2 - weight1);
+
+                g1++;
+                g2++;
+                numMatched++;
+            }
+        }
 
-        NEATMGenome genome1 = (NEATMGenome) gen1;
-        NEATMGenome genome2 = (NEATMGenome) gen2;
+        if (g1 < genome1Size) {
+            numExcess = genome1Size - g1;
+        } else if (g2 < genome2Size) {
+            numExcess = genome2Size - g2;
+        }
+
+        return getConstExcess() * numExcess
+                + getConstDisjoint() * numDisjoint
+                + getConstMatched() * (weightDifference / numMatched);
+    }
 
-        List<NEATMNeuronGene> genome1Inputs = genome1.getInputNeuronsChromosome();
-        List<NEATMNeuronGene> genome2Inputs = genome2.getInputNeuronsChromosome();
+    private static double getSensorScore(Profile genome1, Profile genome2) {
+        int numMatched = 0;
+        double[] differences = new double[NUM_PARAMETERS];
 
-        int genome1InputCount = genome1Inputs.size();
-        int genome2InputCount = genome2Inputs.size();
+        final long[] genome1Inputs = genome1.inputIds;
+        final long[] genome2Inputs = genome2.inputIds;
+        final int genome1InputCount = genome1Inputs.length;
+        final int genome2InputCount = genome2Inputs.length;
 
         int g1 = 0;
         int g2 = 0;
 
         while (g1 < genome1InputCount && g2 < genome2InputCount) {
-            NEATMNeuronGene genome1Input = genome1Inputs.get(g1);
-            NEATMNeuronGene genome2Input = genome2Inputs.get(g2);
-
             // get neuron id for each gene at this point
-            long id1 = genome1Input.getId();
-            long id2 = genome2Input.getId();
+            long id1 = genome1Inputs[g1];
+            long id2 = genome2Inputs[g2];
 
             if (id1 == id2) {
                 // Get the difference of every parameter
-                if (genome1Input.getSensorConfiguration().getSensorType().isConfigurable()) {
-                    for (int i = 0; i < numParameters; i++) {
-                        ParameterType parameterType = parameterTypes[i];
-                        float genome1Parameter = genome1Input.getSensorConfiguration()
-                                .getSensorParameterSet().getParameter(parameterType)
-                                .getNormalizedValue();
-
-                        float genome2Parameter = genome2Input.getSensorConfiguration()
-                                .getSensorParameterSet().getParameter(parameterType)
-                                .getNormalizedValue();
+                if (genome1.configurable[g1]) {
+                    final int offset1 = g1 * NUM_PARAMETERS;
+                    final int offset2 = g2 * NUM_PARAMETERS;
+                    for (int i = 0; i < NUM_PARAMETERS; i++) {
+                        float genome1Parameter = genome1.parameters[offset1 + i];
+                        float genome2Parameter = genome2.parameters[offset2 + i];
 
                         double difference = Math.abs(genome2Parameter - genome1Parameter);
                         differences[i] += difference;
@@ -78,12 +184,177 @@ public class NEATMSpeciation extends NEATSpeciation {
 
         // Calculate the total score for the parameters
         double sensorScore = 0;
-        for (int i = 0; i < numParameters; i++) {
-            sensorScore += parameterTypes[i].getSpeciationWeighting()
+        for (int i = 0; i < NUM_PARAMETERS; i++) {
+            sensorScore += PARAMETER_TYPES[i].getSpeciationWeighting()
                     * (differences[i] / numMatched);
         }
+        return sensorScore;
+    }
+
+    /** Forget the profiles and distances of genomes that are neither new nor leaders. */
+    private void prune(List<Genome> genomeList, List<Genome> leaders) {
+        if (distances == null) {
+            distances = new ConcurrentHashMap<>();
+            profiles = Collections.synchronizedMap(new IdentityHashMap<Genome, Profile>());
+            return;
+        }
 
-        return score + sensorScore;
+        Set<Genome> live = Collections.newSetFromMap(new IdentityHashMap<Genome, Boolean>());
+        live.addAll(genomeList);
+        live.addAll(leaders);
+
+        Iterator<Pair> pairs = distances.keySet().iterator();
+        while (pairs.hasNext()) {
+            Pair pair = pairs.next();
+            if (!live.contains(pair.genome) || !live.contains(pair.leader)) {
+                pairs.remove();
+            }
+        }
+        synchronized (profiles) {
+            profiles.keySet().retainAll(live);
+        }
+    }
+
+    /** Work out the missing distances of the genomes to the leaders, in parallel. */
+    private void computeDistances(List<Genome> genomeList, final List<Genome> leaders) {
+        if (leaders.isEmpty() || genomeList.isEmpty()) {
+            return;
+        }
+
+        for (Genome leader : leaders) {
+            getProfile(leader);
+        }
+
+        final int taskCount = Math.min(genomeList.size(),
+                Runtime.getRuntime().availableProcessors());
+        final int chunkSize = (genomeList.size() + taskCount - 1) / taskCount;
+        List<Callable<Void>> tasks = new ArrayList<>(taskCount);
+        for (int start = 0; start < genomeList.size(); start += chunkSize) {
+            final List<Genome> chunk = genomeList.subList(start,
+                    Math.min(start + chunkSize, genomeList.size()));
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (Genome genome : chunk) {
+                        Profile profile = getProfile(genome);
+                        for (Genome leader : leaders) {
+                            Pair pair = new Pair(genome, leader);
+                            if (!distances.containsKey(pair)) {
+                                distances.put(pair,
+                                        getCompatibilityScore(profile, getProfile(leader)));
+                            }
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> task : getDistanceExecutor().invokeAll(tasks)) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncogError(e);
+        } catch (ExecutionException e) {
+            throw new EncogError(e.getCause());
+        }
+    }
+
+    private Profile getProfile(Genome genome) {
+        Map<Genome, Profile> profiles = this.profiles;
+        if (profiles == null) {
+            return new Profile((NEATMGenome) genome);
+        }
+
+        Profile profile = profiles.get(genome);
+        if (profile == null) {
+            profile = new Profile((NEATMGenome) genome);
+            profiles.put(genome, profile);
+        }
+        return profile;
+    }
+
+    private static synchronized ExecutorService getDistanceExecutor() {
+        if (distanceExecutor == null) {
+            distanceExecutor = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "speciation");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return distanceExecutor;
+    }
+
+    /** The genes of a genome that the distance depends on, in flat arrays. */
+    private static final class Profile {
+        final double weightRange;
+        final long[] linkIds;
+        final double[] linkWeights;
+
+        final long[] inputIds;
+        final boolean[] configurable;
+        // Normalized parameter values, NUM_PARAMETERS per input
+        final float[] parameters;
+
+        Profile(NEATMGenome genome) {
+            weightRange = ((NEATPopulation) genome.getPopulation()).getWeightRange();
+
+            List<NEATLinkGene> links = genome.getLinksChromosome();
+            linkIds = new long[links.size()];
+            linkWeights = new double[links.size()];
+            for (int i = 0; i < linkIds.length; i++) {
+                NEATLinkGene link = links.get(i);
+                linkIds[i] = link.getInnovationId();
+                linkWeights[i] = link.getWeight();
+            }
+
+            List<NEATMNeuronGene> inputs = genome.getInputNeuronsChromosome();
+            inputIds = new long[inputs.size()];
+            configurable = new boolean[inputs.size()];
+            parameters = new float[inputs.size() * NUM_PARAMETERS];
+            for (int i = 0; i < inputIds.length; i++) {
+                NEATMNeuronGene input = inputs.get(i);
+                inputIds[i] = input.getId();
+                configurable[i] = input.getSensorConfiguration().getSensorType().isConfigurable();
+                if (configurable[i]) {
+                    for (int p = 0; p < NUM_PARAMETERS; p++) {
+                        parameters[i * NUM_PARAMETERS + p] = input.getSensorConfiguration()
+                                .getSensorParameterSet().getParameter(PARAMETER_TYPES[p])
+                                .getNormalizedValue();
+                    }
+                }
+            }
+        }
     }
 
+    /** A genome and a leader, compared by identity. */
+    private static final class Pair {
+        final Genome genome;
+        final Genome leader;
+
+        Pair(Genome genome, Genome leader) {
+            this.genome = genome;
+            this.leader = leader;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Pair)) {
+                return false;
+            }
+            Pair other = (Pair) o;
+            return genome == other.genome && leader == other.leader;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(genome) + System.identityHashCode(leader);
+        }
+    }
 }
@@ -0,0 +1,131 @@
+package za.redbridge.controller;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-accuracy quantile sketch for positive values. Values are counted in logarithmically
+ * sized buckets so any quantile is returned within a relative error of the configured accuracy,
+ * and memory only grows with the log of the range of values seen. Not thread-safe.
+ */
+public class QuantileSketch {
+
+    private final double gamma;
+    private final double logGamma;
+
+    // counts[i] is the number of values in bucket (offset + i)
+    private long[] counts;
+    private int offset;
+    private boolean empty = true;
+
+    private long zeroCount;
+    private long count;
+
+    /**
+     * @param relativeAccuracy the maximum relative error of a returned quantile, e.g. 0.01
+     */
+    public QuantileSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("Relative accuracy must be in (0, 1)");
+        }
+
+        gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        logGamma = Math.log(gamma);
+        counts = new long[64];
+    }
+
+    public void add(double value) {
+        count++;
+        if (value <= 0) {
+            zeroCount++;
+            return;
+        }
+
+        int index = (int) Math.ceil(Math.log(value) / logGamma);
+        ensureCapacity(index, index);
+        counts[index - offset]++;
+    }
+
+    /** Add all the values counted by another sketch with the same accuracy. */
+    public void merge(QuantileSketch other) {
+        if (other.gamma != gamma) {
+            throw new IllegalArgumentException("Sketches must have the same accuracy");
+        }
+
+        count += other.count;
+        zeroCount += other.zeroCount;
+        if (other.empty) {
+            return;
+        }
+
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) {
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        if (first < 0) {
+            return;
+        }
+
+        ensureCapacity(other.offset + first, other.offset + last);
+        for (int i = first; i <= last; i++) {
+            counts[other.offset + i - offset] += other.counts[i];
+        }
+    }
+
+    /**
+     * @param quantile the quantile to return, between 0 and 1
+     * @return the approximate value at that quantile, or NaN if no values have been added
+     */
+    public double getQuantile(double quantile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        long rank = (long) (quantile * (count - 1));
+        if (rank < zeroCount) {
+            return 0;
+        }
+
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return 2 * Math.pow(gamma, offset + i) / (gamma + 1);
+            }
+        }
+        return 2 * Math.pow(gamma, offset + counts.length - 1) / (gamma + 1);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        zeroCount = 0;
+        count = 0;
+    }
+
+    private void ensureCapacity(int minIndex, int maxIndex) {
+        if (empty) {
+            offset = minIndex - counts.length / 2;
+            empty = false;
+        }
+
+        if (minIndex >= offset && maxIndex < offset + counts.length) {
+            return;
+        }
+
+        int newOffset = Math.min(offset, minIndex);
+        int newLength = Math.max(offset + counts.length, maxIndex + 1) - newOffset;
+        long[] newCounts = new long[Math.max(newLength, counts.length * 2)];
+        System.arraycopy(counts, 0, newCounts, offset - newOffset, counts.length);
+        counts = newCounts;
+        offset = newOffset;
+    }
+}
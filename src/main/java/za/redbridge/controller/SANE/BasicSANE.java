@@ -36,11 +36,18 @@ import za.redbridge.controller.SANE.mutate.NeuronMutate;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Provides a basic implementation of a multi-threaded Evolutionary Algorithm.
@@ -55,6 +62,12 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The neuron store is compacted once this many neuron populations worth of neurons have
+     * been allocated since it was last compacted.
+     */
+    private static final int NEURON_COMPACTION_FACTOR = 2;
+
     /**
      * Calculate the score adjustment, based on adjusters.
      *
@@ -164,11 +177,11 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
     /**
      * The population for the next iteration.
      */
-    private final List<Genome> newBlueprints = new ArrayList<Genome>();
+    private final ChildBuffer newBlueprints = new ChildBuffer();
     /**
      * The population for the next iteration.
      */
-    private final List<Genome> newNeurons = new ArrayList<Genome>();
+    private final ChildBuffer newNeurons = new ChildBuffer();
 
     /**
      * The mutation to be used on the top genome. We want to only modify its
@@ -198,9 +211,9 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
     private int maxTries = 5;
 
     /**
-     * The best ever genome.
+     * The best ever genome, replaced by compare-and-set from the workers.
      */
-    private Genome bestGenome;
+    private final AtomicReference<Genome> bestGenome = new AtomicReference<Genome>();
 
     /**
      * The thread pool executor.
@@ -219,6 +232,51 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
 
     private int maxOperationErrors = 500;
 
+    /**
+     * The offspring of each neuron in the current generation.
+     */
+    private final LineageIndex lineageIndex = new LineageIndex();
+
+    /**
+     * Scores of previously evaluated blueprints, null if disabled.
+     */
+    private FitnessCache fitnessCache;
+
+    /**
+     * True if the population was restored from a checkpoint and is already scored.
+     */
+    private boolean resumed;
+
+    /**
+     * Time spent in each phase of the iterations.
+     */
+    private final PhaseTimer phaseTimer = new PhaseTimer();
+
+    /**
+     * Dimensions of the evolved networks.
+     */
+    private final NetworkDimensions dimensions;
+
+    /**
+     * True to replace blueprints one at a time as evaluations finish, instead of generations.
+     */
+    private boolean steadyState;
+
+    /**
+     * Held while breeding or changing the populations in steady-state mode.
+     */
+    private final Object breedingLock = new Object();
+
+    /**
+     * Steady-state evaluations, kept running between iterations.
+     */
+    private transient CompletionService<List<Genome>> completionService;
+
+    /**
+     * Number of steady-state evaluations submitted but not yet inserted.
+     */
+    private int inFlight;
+
     /**
      * Construct an EA.
      *
@@ -228,7 +286,21 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
     public BasicSANE(final Population blueprintPopulation, final Population neuronPopulation,
                      final CalculateScore theScoreFunction)
     {
+        this(blueprintPopulation, neuronPopulation, theScoreFunction, NetworkDimensions.DEFAULT);
+    }
+
+    /**
+     * Construct an EA.
+     *
+     * @param blueprintPopulation    The population.
+     * @param theScoreFunction The score function.
+     * @param theDimensions    The dimensions of the evolved networks.
+     */
+    public BasicSANE(final Population blueprintPopulation, final Population neuronPopulation,
+                     final CalculateScore theScoreFunction, final NetworkDimensions theDimensions)
+    {
 
+        this.dimensions = theDimensions;
         this.blueprint_population = blueprintPopulation;
         this.neuron_population = neuronPopulation;
 
@@ -288,7 +360,7 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
         // We won't know the true best genome until the first iteration.
         if (this.blueprint_population.getSpecies().size() > 0 && this.blueprint_population.getSpecies().get(0).getMembers().size() > 0)
         {
-            this.bestGenome = this.blueprint_population.getSpecies().get(0).getMembers().get(0);
+            this.bestGenome.set(this.blueprint_population.getSpecies().get(0).getMembers().get(0));
         }
     }
 
@@ -300,61 +372,73 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
      */
     public boolean addChild(final Genome genome)
     {
-        synchronized (newBlueprints)
+        // don't readd the old best genome, it was already added
+        if (genome == this.oldBestGenome)
         {
-            System.out.println("blueprint list size :" + this.newBlueprints.size());
-            System.out.println("blueprint population count :" + getPopulation().getPopulationSize());
-
-            if (this.newBlueprints.size() < getPopulation().getPopulationSize())
+            if (this.newBlueprints.isFull())
+            {
+                Trace.event("blueprint rejected");
+                return false;
+            }
+        } else if (isValidationMode())
+        {
+            //checking and adding must not interleave, only locked when validating
+            synchronized (this.newBlueprints)
             {
-                // don't readd the old best genome, it was already added
-                if (genome != this.oldBestGenome)
+                if (this.newBlueprints.contains(genome))
                 {
-                    if (isValidationMode())
-                    {
-                        if (this.newBlueprints.contains(genome))
-                        {
-                            throw new EncogError(
-                                    "Genome already added to population: "
-                                            + genome.toString());
-                        }
-                    }
-
-                    this.newBlueprints.add(genome);
+                    throw new EncogError(
+                            "Genome already added to population: "
+                                    + genome.toString());
                 }
-
-                if (!Double.isInfinite(genome.getScore()) && !Double.isNaN(genome.getScore())&& getBestComparator().isBetterThan(genome,this.bestGenome))
+                if (!this.newBlueprints.add(genome))
                 {
-                    this.bestGenome = genome;
-                    getPopulation().setBestGenome(this.bestGenome);
+                    Trace.event("blueprint rejected");
+                    return false;
                 }
-                return true;
-            } else
-            {
-                return false;
             }
+        } else if (!this.newBlueprints.add(genome))
+        {
+            Trace.event("blueprint rejected");
+            return false;
         }
+        Trace.event("blueprint added");
+
+        updateBestGenome(genome);
+        return true;
     }
 
     //adds neuron children
     public boolean addChildNeuron(final Genome genome)
     {
-        synchronized (newNeurons)
+        if (this.newNeurons.add(genome))
         {
-            System.out.println("neuron list size :" + this.newNeurons.size());
-            System.out.println("neuron population count :" + getNeuronPopulation().getPopulationSize());
+            Trace.event("neuron added");
+            return true;
+        } else
+        {
+            Trace.event("neuron rejected");
+            return false;
+        }
+    }
 
-            if (this.newNeurons.size() < getNeuronPopulation().getPopulationSize())
-            {
-                this.newNeurons.add(genome);
-                System.out.println("adding neuron true");
-                return true;
-            } else
+    //replace the best genome if this one is better
+    private void updateBestGenome(final Genome genome)
+    {
+        if (Double.isInfinite(genome.getScore()) || Double.isNaN(genome.getScore()))
+        {
+            return;
+        }
+
+        Genome best;
+        do
+        {
+            best = this.bestGenome.get();
+            if (best != null && !getBestComparator().isBetterThan(genome, best))
             {
-                System.out.println("adding neuron false");
-                return false;
+                return;
             }
-        }
+        } while (!this.bestGenome.compareAndSet(best, genome));
     }
 
     /**
@@ -389,9 +473,25 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
         // try rewrite
         this.rules.rewrite(blueprint);
 
+        // skip the evaluation if a blueprint with the same content has been scored
+        FitnessCache.Key cacheKey = null;
+        if (this.fitnessCache != null)
+        {
+            cacheKey = FitnessCache.keyFor(blueprint);
+            final Double cachedScore = this.fitnessCache.get(cacheKey);
+            if (cachedScore != null)
+            {
+                blueprint.setScore(cachedScore);
+                blueprint.setAdjustedScore(cachedScore);
+                blueprint.setScoreBound(false);
+                return;
+            }
+        }
+
         // decode
         final MLMethod phenotype = getCODEC().decode(blueprint);
         double score;
+        boolean bound = false;
 
         // deal with invalid decode
         if (phenotype == null)
@@ -409,13 +509,21 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
             {
                 ((MLContext) phenotype).clearContext();
             }
-            System.out.println("calculation starting");
+            Trace.event("blueprint evaluation started");
             score = getScoreFunction().calculateScore(phenotype);
+            bound = isLastScoreBound();
+
+            //only cache complete evaluations, a bound depends on the threshold at the time
+            if (cacheKey != null && !bound)
+            {
+                this.fitnessCache.put(cacheKey, score);
+            }
         }
 
         // now set the scores
         blueprint.setScore(score);
         blueprint.setAdjustedScore(score);
+        blueprint.setScoreBound(bound);
 
 
     }
@@ -463,7 +571,7 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
     @Override
     public Genome getBestGenome()
     {
-        return this.bestGenome;
+        return this.bestGenome.get();
     }
 
     /**
@@ -499,9 +607,10 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
     public double getError()
     {
         // do we have a best genome, and does it have an error?
-        if (this.bestGenome != null)
+        final Genome best = this.bestGenome.get();
+        if (best != null)
         {
-            double err = this.bestGenome.getScore();
+            double err = best.getScore();
             if (!Double.isNaN(err))
             {
                 return err;
@@ -681,15 +790,22 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
             throw new EncogError("Population is empty, there are no species.");
         }
 
+        if (this.steadyState)
+        {
+            steadyStateIteration();
+            return;
+        }
+
         this.threadList.clear();
 
         this.iteration++;
 
-        System.out.println("Starting neuron evolution");
+        Trace.event("neuron evolution started");
         //clear neurons
-        this.newNeurons.clear();
+        this.newNeurons.reset(getNeuronPopulation().getPopulationSize());
 
-        System.out.println("Clearing fitness");
+        Trace.event("clearing neuron fitness");
+        this.phaseTimer.start(PhaseTimer.Phase.NEURON_FITNESS);
         //clear fitness of neuron
         for (final Genome g : getNeuronPopulation().getSpecies().get(0).getMembers())
         {
@@ -698,73 +814,50 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
             neuron.setScore(0);
             neuron.setAdjustedScore(0);
         }
-        System.out.println("Assigning fitness");
+        Trace.event("assigning neuron fitness");
+        //a raced blueprint that was stopped only has an optimistic bound as its score, so it
+        //credits its neurons with the worst score of a completely evaluated blueprint instead
+        final List<Genome> blueprints = getPopulation().getSpecies().get(0).getMembers();
+        final double boundCredit = getWorstCompleteScore(blueprints);
         //assign fitness to neurons
-        for (final Genome g : getPopulation().getSpecies().get(0).getMembers())
+        for (final Genome g : blueprints)
         {
             BlueprintGenome blueprint = (BlueprintGenome) g;
+            final double credit = blueprint.isScoreBound() && !Double.isNaN(boundCredit)
+                    ? boundCredit : blueprint.getScore();
 
             //add the score of network to neurons
             for (int i = 0; i < blueprint.getBlueprint().length; i++)
             {
-                blueprint.getBlueprint()[i].addScore(blueprint.getScore());
+                blueprint.getBlueprint()[i].addScore(credit);
                 blueprint.getBlueprint()[i].incrementParticipation();
             }
         }
 
-        System.out.println("Finalizing fitness");
+        Trace.event("finalizing neuron fitness");
         //finalize fitness of neuron by averaging its fitness per network
         for (final Genome g : getNeuronPopulation().getSpecies().get(0).getMembers())
         {
             NeuronGenome neuron = (NeuronGenome) g;
             neuron.finalizeScore();
         }
+        this.phaseTimer.stop(PhaseTimer.Phase.NEURON_FITNESS);
 
+        this.phaseTimer.start(PhaseTimer.Phase.NEURON_BREEDING);
         //neuron iteration
-        for (final Species species : getNeuronPopulation().getSpecies())
-        {
-            int numToSpawn = species.getOffspringCount();
-            // Add elite genomes directly
-            if (species.getMembers().size() > 5)
-            {
-                final int idealEliteCount = (int) (species.getMembers().size() * getEliteRate());
-                final int eliteCount = Math.min(numToSpawn, idealEliteCount);
-                for (int i = 0; i < eliteCount; i++)
-                {
-                    final Genome eliteGenome = species.getMembers().get(i);
-                    numToSpawn--;
-                    if (!addChildNeuron(eliteGenome))
-                    {
-                        break;
-                    }
-
-                }
-            }
-
-            if (numToSpawn % 2 == 0)
-            {
-                numToSpawn = numToSpawn/2;
-            }
-            else numToSpawn = (numToSpawn/2) +1;
-            // now add one task for each offspring that each species is allowed
-            while (numToSpawn-- >= 0)
-            {
-
-                final NeuronWorker worker = new NeuronWorker(this, species);
-                this.threadList.add(worker);
-            }
-
-        }
+        createNeuronWorkers();
 
         // run all threads and wait for them to finish
         try
         {
-            this.taskExecutor.invokeAll(this.threadList);
+            this.taskExecutor.invokeAll(
+                    this.phaseTimer.track(PhaseTimer.Phase.NEURON_BREEDING, this.threadList));
         }
         catch (final InterruptedException e)
         {
             EncogLogging.log(e);
         }
+        this.phaseTimer.stop(PhaseTimer.Phase.NEURON_BREEDING);
 
         // handle any errors that might have happened in the threads
         if (this.reportedError != null && !getShouldIgnoreExceptions())
@@ -772,20 +865,24 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
             throw new GeneticError(this.reportedError);
         }
 
-        this.speciation.performSpeciation(this.newNeurons, neuron_population);
+        this.phaseTimer.start(PhaseTimer.Phase.NEURON_SPECIATION);
+        this.speciation.performSpeciation(this.newNeurons.asList(), neuron_population);
 
         // purge invalid genomes
         this.neuron_population.purgeInvalidGenomes();
+        this.phaseTimer.stop(PhaseTimer.Phase.NEURON_SPECIATION);
 
-        System.out.println("Starting blueprint evolution");
+        Trace.event("blueprint evolution started");
 
+        this.phaseTimer.start(PhaseTimer.Phase.BLUEPRINT_BREEDING);
         // Clear new population to just best genome.
-        this.newBlueprints.clear();
-        this.newBlueprints.add(this.bestGenome);
-        this.oldBestGenome = this.bestGenome;
+        this.newBlueprints.reset(getPopulation().getPopulationSize());
+        this.newBlueprints.add(this.bestGenome.get());
+        this.oldBestGenome = this.bestGenome.get();
 
         // execute species in parallel
         this.threadList.clear();
+        updateSurvivalThreshold(getPopulation().getSpecies().get(0));
 
         //blueprint iteration
         for (final Species species : getPopulation().getSpecies())
@@ -827,12 +924,14 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
         // run all threads and wait for them to finish
         try
         {
-            this.taskExecutor.invokeAll(this.threadList);
+            this.taskExecutor.invokeAll(
+                    this.phaseTimer.track(PhaseTimer.Phase.BLUEPRINT_BREEDING, this.threadList));
         }
         catch (final InterruptedException e)
         {
             EncogLogging.log(e);
         }
+        this.phaseTimer.stop(PhaseTimer.Phase.BLUEPRINT_BREEDING);
 
         // handle any errors that might have happened in the threads
         if (this.reportedError != null && !getShouldIgnoreExceptions())
@@ -840,9 +939,20 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
             throw new GeneticError(this.reportedError);
         }
 
+        final Genome best = this.bestGenome.get();
+        getPopulation().setBestGenome(best);
+
         // validate, if requested
         if (isValidationMode())
         {
+            final Genome duplicate = this.newBlueprints.findDuplicate();
+            if (duplicate != null)
+            {
+                throw new EncogError(
+                        "Genome already added to population: "
+                                + duplicate.toString());
+            }
+
             if (this.oldBestGenome != null
                     && !this.newBlueprints.contains(this.oldBestGenome))
             {
@@ -850,22 +960,364 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
                         "The top genome died, this should never happen!!");
             }
 
-            if (this.bestGenome != null
+            if (best != null
                     && this.oldBestGenome != null
                     && getBestComparator().isBetterThan(this.oldBestGenome,
-                    this.bestGenome))
+                    best))
             {
                 throw new EncogError(
                         "The best genome's score got worse, this should never happen!! Went from "
                                 + this.oldBestGenome.getScore() + " to "
-                                + this.bestGenome.getScore());
+                                + best.getScore());
             }
         }
 
-        this.speciation.performSpeciation(this.newBlueprints, blueprint_population);
+        this.phaseTimer.start(PhaseTimer.Phase.BLUEPRINT_SPECIATION);
+        this.speciation.performSpeciation(this.newBlueprints.asList(), blueprint_population);
 
         // purge invalid genomes
         this.blueprint_population.purgeInvalidGenomes();
+        this.phaseTimer.stop(PhaseTimer.Phase.BLUEPRINT_SPECIATION);
+
+        // drop the lineage so neurons that did not survive can be collected
+        this.lineageIndex.clear();
+
+        if (shouldCompactNeurons())
+        {
+            compactNeurons();
+        }
+    }
+
+    /**
+     * One iteration of steady-state evolution: a neuron generation, then as many blueprint
+     * evaluations as there are blueprints. Each evaluated child replaces the worst blueprint if
+     * it is better, and a new child is bred as soon as a worker is free, so evaluations that are
+     * still running when the iteration ends carry over to the next one.
+     */
+    private void steadyStateIteration()
+    {
+        this.iteration++;
+
+        final Species blueprintSpecies = getPopulation().getSpecies().get(0);
+
+        if (this.completionService == null)
+        {
+            this.completionService = new ExecutorCompletionService<List<Genome>>(this.taskExecutor);
+
+            //from now on neuron fitness is kept up to date as blueprints come and go
+            this.phaseTimer.start(PhaseTimer.Phase.NEURON_FITNESS);
+            for (final Genome g : getNeuronPopulation().getSpecies().get(0).getMembers())
+            {
+                ((NeuronGenome) g).resetParticipation();
+            }
+            for (final Genome g : blueprintSpecies.getMembers())
+            {
+                addParticipation((BlueprintGenome) g);
+            }
+            this.phaseTimer.stop(PhaseTimer.Phase.NEURON_FITNESS);
+        }
+
+        //breed the neurons on this thread, the pool is busy evaluating
+        this.phaseTimer.start(PhaseTimer.Phase.NEURON_BREEDING);
+        synchronized (this.breedingLock)
+        {
+            this.lineageIndex.clear();
+            this.newNeurons.reset(getNeuronPopulation().getPopulationSize());
+            this.threadList.clear();
+            createNeuronWorkers();
+            for (final Callable<Object> worker : this.threadList)
+            {
+                try
+                {
+                    worker.call();
+                }
+                catch (final Exception e)
+                {
+                    reportError(e);
+                }
+            }
+            if (this.reportedError != null && !getShouldIgnoreExceptions())
+            {
+                throw new GeneticError(this.reportedError);
+            }
+
+            this.phaseTimer.stop(PhaseTimer.Phase.NEURON_BREEDING);
+
+            this.phaseTimer.start(PhaseTimer.Phase.NEURON_SPECIATION);
+            //new neurons have not participated yet
+            for (final Genome g : this.newNeurons.asList())
+            {
+                ((NeuronGenome) g).updateParticipationScore();
+            }
+            this.speciation.performSpeciation(this.newNeurons.asList(), neuron_population);
+            this.neuron_population.purgeInvalidGenomes();
+            this.phaseTimer.stop(PhaseTimer.Phase.NEURON_SPECIATION);
+        }
+
+        this.phaseTimer.start(PhaseTimer.Phase.BLUEPRINT_BREEDING);
+        updateSurvivalThreshold(blueprintSpecies);
+        while (this.inFlight < this.actualThreadCount)
+        {
+            submitSteadyStateWorker(blueprintSpecies);
+        }
+
+        int evaluations = 0;
+        while (evaluations < getPopulation().getPopulationSize())
+        {
+            final int inserted = takeSteadyStateChildren(blueprintSpecies);
+            if (inserted < 0)
+            {
+                break;
+            }
+            evaluations += inserted;
+            submitSteadyStateWorker(blueprintSpecies);
+        }
+
+        //the store can only be compacted while no evaluations are running, so now and then the
+        //evaluations in flight are finished here instead of carrying over
+        if (shouldCompactNeurons())
+        {
+            while (this.inFlight > 0 && takeSteadyStateChildren(blueprintSpecies) >= 0)
+            {
+                //keep draining
+            }
+            if (this.inFlight == 0)
+            {
+                compactNeurons();
+            }
+        }
+        this.phaseTimer.stop(PhaseTimer.Phase.BLUEPRINT_BREEDING);
+
+        getPopulation().setBestGenome(this.bestGenome.get());
+    }
+
+    //waits for a steady-state worker and inserts its children,
+    //returns how many, or -1 if interrupted
+    private int takeSteadyStateChildren(final Species species)
+    {
+        final List<Genome> children;
+        try
+        {
+            children = this.completionService.take().get();
+        }
+        catch (final InterruptedException e)
+        {
+            EncogLogging.log(e);
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+        catch (final ExecutionException e)
+        {
+            throw new GeneticError(e.getCause());
+        }
+        this.inFlight--;
+
+        synchronized (this.breedingLock)
+        {
+            for (final Genome child : children)
+            {
+                insertSteadyStateChild(species, (BlueprintGenome) child);
+            }
+            updateSurvivalThreshold(species);
+        }
+        return children.size();
+    }
+
+    //true once enough neurons have been allocated since the last compaction to be worth it
+    private boolean shouldCompactNeurons()
+    {
+        final NeuronStore store = getNeuronStore();
+        return store != null && store.getAllocatedSinceCompaction()
+                >= NEURON_COMPACTION_FACTOR * getNeuronPopulation().getPopulationSize();
+    }
+
+    /**
+     * Move the chromosomes of the neurons still in use, those of the neuron population and of
+     * the blueprints, into one block of the neuron store. Otherwise a single surviving neuron
+     * keeps the whole block it was allocated in alive. Only called when no workers are running.
+     */
+    private void compactNeurons()
+    {
+        final Set<NeuronGenome> live =
+                Collections.newSetFromMap(new IdentityHashMap<NeuronGenome, Boolean>());
+        for (final Species species : getNeuronPopulation().getSpecies())
+        {
+            for (final Genome g : species.getMembers())
+            {
+                live.add((NeuronGenome) g);
+            }
+        }
+        for (final Species species : getPopulation().getSpecies())
+        {
+            for (final Genome g : species.getMembers())
+            {
+                Collections.addAll(live, ((BlueprintGenome) g).getBlueprint());
+            }
+        }
+        for (final Genome g : new Genome[]{this.bestGenome.get(), this.oldBestGenome})
+        {
+            if (g != null)
+            {
+                Collections.addAll(live, ((BlueprintGenome) g).getBlueprint());
+            }
+        }
+        getNeuronStore().compact(live);
+    }
+
+    //the store of the neuron chromosomes, null if the neurons are not from a NeuronGenomeFactory
+    private NeuronStore getNeuronStore()
+    {
+        if (getNeuronPopulation().getGenomeFactory() instanceof NeuronGenomeFactory)
+        {
+            return ((NeuronGenomeFactory) getNeuronPopulation().getGenomeFactory()).getStore();
+        }
+        return null;
+    }
+
+    private void submitSteadyStateWorker(final Species species)
+    {
+        final Callable<List<Genome>> worker = new SteadyStateWorker(this, species);
+        this.completionService.submit(this.phaseTimer.track(PhaseTimer.Phase.BLUEPRINT_BREEDING,
+                Collections.singletonList(worker)).get(0));
+        this.inFlight++;
+    }
+
+    //replace the worst blueprint with the child if the child is better, keeping members sorted
+    private void insertSteadyStateChild(final Species species, final BlueprintGenome child)
+    {
+        final List<Genome> members = species.getMembers();
+        final int last = members.size() - 1;
+        final BlueprintGenome worst = (BlueprintGenome) members.get(last);
+        if (Double.isNaN(child.getAdjustedScore())
+                || !this.selectionComparator.isBetterThan(child, worst))
+        {
+            return;
+        }
+
+        members.remove(last);
+        removeParticipation(worst);
+
+        int position = last;
+        while (position > 0 && this.selectionComparator.isBetterThan(child, members.get(position - 1)))
+        {
+            position--;
+        }
+        members.add(position, child);
+        species.setLeader(members.get(0));
+        addParticipation(child);
+
+        updateBestGenome(child);
+    }
+
+    /**
+     * Tell the score function the lowest score that survives selection in the given sorted
+     * species: the last blueprint truncation selection picks parents from, or in steady-state
+     * mode the worst blueprint, which a child has to beat to be inserted.
+     */
+    private void updateSurvivalThreshold(final Species species)
+    {
+        if (!(getScoreFunction() instanceof SurvivalThresholdAware))
+        {
+            return;
+        }
+
+        final List<Genome> members = species.getMembers();
+        double threshold = Double.NaN;
+        if (!members.isEmpty())
+        {
+            if (this.steadyState)
+            {
+                threshold = members.get(members.size() - 1).getScore();
+            } else if (getSelection() instanceof TruncationSelection)
+            {
+                final double percent = ((TruncationSelection) getSelection()).getPercent();
+                final int survivors = Math.max((int) (members.size() * percent), 1);
+                threshold = members.get(survivors - 1).getScore();
+            }
+        }
+        ((SurvivalThresholdAware) getScoreFunction()).setSurvivalThreshold(threshold);
+    }
+
+    //true if the score function only gave a bound on the last score this thread calculated
+    private boolean isLastScoreBound()
+    {
+        return getScoreFunction() instanceof SurvivalThresholdAware
+                && ((SurvivalThresholdAware) getScoreFunction()).isLastScoreBound();
+    }
+
+    //the worst score of the blueprints that were evaluated completely, NaN if there are none
+    private double getWorstCompleteScore(final List<Genome> blueprints)
+    {
+        double worst = Double.NaN;
+        for (final Genome g : blueprints)
+        {
+            if (((BlueprintGenome) g).isScoreBound())
+            {
+                continue;
+            }
+            if (Double.isNaN(worst) || getBestComparator().isBetterThan(worst, g.getScore()))
+            {
+                worst = g.getScore();
+            }
+        }
+        return worst;
+    }
+
+    //steady-state: a stopped child scores below the worst blueprint, so it is never inserted and
+    //bounds never reach the neuron fitness
+    private static void addParticipation(final BlueprintGenome blueprint)
+    {
+        for (final NeuronGenome neuron : blueprint.getBlueprint())
+        {
+            neuron.addParticipation(blueprint.getScore());
+        }
+    }
+
+    private static void removeParticipation(final BlueprintGenome blueprint)
+    {
+        for (final NeuronGenome neuron : blueprint.getBlueprint())
+        {
+            neuron.removeParticipation(blueprint.getScore());
+        }
+    }
+
+    //adds the elite neurons to the next generation and a worker for each pair of offspring
+    private void createNeuronWorkers()
+    {
+        for (final Species species : getNeuronPopulation().getSpecies())
+        {
+            int numToSpawn = species.getOffspringCount();
+            // Add elite genomes directly
+            if (species.getMembers().size() > 5)
+            {
+                final int idealEliteCount = (int) (species.getMembers().size() * getEliteRate());
+                final int eliteCount = Math.min(numToSpawn, idealEliteCount);
+                for (int i = 0; i < eliteCount; i++)
+                {
+                    final Genome eliteGenome = species.getMembers().get(i);
+                    numToSpawn--;
+                    if (!addChildNeuron(eliteGenome))
+                    {
+                        break;
+                    }
+
+                }
+            }
+
+            if (numToSpawn % 2 == 0)
+            {
+                numToSpawn = numToSpawn/2;
+            }
+            else numToSpawn = (numToSpawn/2) +1;
+            // now add one task for each offspring that each species is allowed
+            while (numToSpawn-- >= 0)
+            {
+
+                final NeuronWorker worker = new NeuronWorker(this, species);
+                this.threadList.add(worker);
+            }
+
+        }
     }
 
     /**
@@ -895,13 +1347,18 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
             this.actualThreadCount = this.threadCount;
         }
 
-        // score the initial population
-        final ParallelScore pscore = new ParallelScore(getPopulation(),
-                getCODEC(), new ArrayList<AdjustScore>(), getScoreFunction(),
-                this.actualThreadCount);
-        pscore.setThreadCount(this.actualThreadCount);
-        pscore.process();
-        this.actualThreadCount = pscore.getThreadCount();
+        // score the initial population, a resumed population keeps its scores
+        if (!this.resumed)
+        {
+            final ParallelScore pscore = new ParallelScore(getPopulation(),
+                    getCODEC(), new ArrayList<AdjustScore>(), getScoreFunction(),
+                    this.actualThreadCount);
+            pscore.setThreadCount(this.actualThreadCount);
+            pscore.process();
+            this.actualThreadCount = pscore.getThreadCount();
+        }
+
+        this.phaseTimer.setThreadCount(this.actualThreadCount);
 
         // start up the thread pool
         if (this.actualThreadCount == 1)
@@ -923,15 +1380,20 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
         // if there is an empty population, the constructor would have blow
         final List<Genome> list = getPopulation().flatten();
 
-        int idx = 0;
-        do
+        if (!this.resumed || this.bestGenome.get() == null)
         {
-            this.bestGenome = list.get(idx++);
-        } while (idx < list.size()
-                && (Double.isInfinite(this.bestGenome.getScore()) || Double
-                .isNaN(this.bestGenome.getScore())));
+            int idx = 0;
+            Genome best;
+            do
+            {
+                best = list.get(idx++);
+            } while (idx < list.size()
+                    && (Double.isInfinite(best.getScore()) || Double
+                    .isNaN(best.getScore())));
+            this.bestGenome.set(best);
+        }
 
-        getPopulation().setBestGenome(this.bestGenome);
+        getPopulation().setBestGenome(this.bestGenome.get());
 
         // speciate
         final List<Genome> genomes = getPopulation().flatten();
@@ -941,6 +1403,23 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
         this.blueprint_population.purgeInvalidGenomes();
     }
 
+    /**
+     * Continue training from a restored population instead of scoring it again.
+     *
+     * @param iteration The iteration the population was saved at.
+     * @param best      The best genome of the restored population, may be null.
+     */
+    public void resume(final int iteration, final Genome best)
+    {
+        //the population saved before the first iteration has not been scored yet
+        this.resumed = iteration > 0;
+        this.iteration = iteration;
+        if (best != null)
+        {
+            this.bestGenome.set(best);
+        }
+    }
+
     /**
      * Called by a thread to report an error.
      *
@@ -1108,6 +1587,71 @@ public class BasicSANE implements EvolutionaryAlgorithm, MultiThreadable,
         this.maxOperationErrors = maxOperationErrors;
     }
 
+    /**
+     * @return the dimensions of the evolved networks
+     */
+    public NetworkDimensions getDimensions()
+    {
+        return this.dimensions;
+    }
+
+    /**
+     * @return the time spent in each phase of the iterations
+     */
+    public PhaseTimer getPhaseTimer()
+    {
+        return this.phaseTimer;
+    }
+
+    /**
+     * @return true if running steady-state rather than generational evolution
+     */
+    public boolean isSteadyState()
+    {
+        return this.steadyState;
+    }
+
+    /**
+     * @param steadyState true to replace blueprints as their evaluations finish instead of
+     *                    evolving whole generations
+     */
+    public void setSteadyState(final boolean steadyState)
+    {
+        this.steadyState = steadyState;
+    }
+
+    /**
+     * @return the lock held while the populations are bred or changed in steady-state mode
+     */
+    public Object getBreedingLock()
+    {
+        return this.breedingLock;
+    }
+
+    /**
+     * @return the offspring produced by each neuron in the current generation
+     */
+    public LineageIndex getLineageIndex()
+    {
+        return this.lineageIndex;
+    }
+
+    /**
+     * @return the blueprint fitness cache, or null if it is disabled
+     */
+    public FitnessCache getFitnessCache()
+    {
+        return this.fitnessCache;
+    }
+
+    /**
+     * @param fitnessCache the blueprint fitness cache to use, null to disable
+     */
+    public void setFitnessCache(final FitnessCache fitnessCache)
+    {
+        this.fitnessCache = fitnessCache;
+    }
+
     //returns blueprint genetic operators
     public EvolutionaryOperator getNeuronCrossover()
     {
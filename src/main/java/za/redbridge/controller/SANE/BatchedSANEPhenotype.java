@@ -0,0 +1,135 @@
+package za.redbridge.controller.SANE;
+
+import sim.util.Double2D;
+import za.redbridge.controller.NEATM.sensor.SensorMorphology;
+import za.redbridge.simulator.phenotype.Phenotype;
+import za.redbridge.simulator.sensor.AgentSensor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Phenotype for SANE that evaluates the network for all robots of a team at once.
+ *
+ * The robot factory clones this phenotype for each robot. The clones share a {@link SANEBatch},
+ * which runs the network once per tick over the readings of all of them. Robots act on the
+ * readings of the previous tick (one tick of actuation delay) because a robot's output has to
+ * be returned before the other robots have read their sensors. The delay changes how the
+ * controllers behave, so scores are not comparable with those of {@link SANEPhenotype}.
+ */
+public class BatchedSANEPhenotype implements Phenotype
+{
+    //expected team size, the batch grows if there are more robots
+    private static final int DEFAULT_TEAM_SIZE = 20;
+
+    private final Team team;
+    private final List<AgentSensor> sensors;
+
+    private SANEBatch batch;
+    private int row;
+
+    //last wheel drive returned, reused while the network output stays the same
+    private Double2D wheelDrive;
+
+    public BatchedSANEPhenotype(SANENetwork network, SensorMorphology morphology)
+    {
+        this(new Team(network, morphology));
+    }
+
+    private BatchedSANEPhenotype(Team team)
+    {
+        this.team = team;
+
+        // Initialise sensors
+        final SensorMorphology morphology = team.morphology;
+        final int numSensors = morphology.getNumSensors();
+        sensors = new ArrayList<>(numSensors);
+        for (int i = 0; i < numSensors; i++) {
+            sensors.add(morphology.getSensor(i));
+        }
+    }
+
+    @Override
+    public List<AgentSensor> getSensors()
+    {
+        return sensors;
+    }
+
+    @Override
+    public Double2D step(List<List<Double>> sensorReadings)
+    {
+        if (batch == null)
+        {
+            //not a clone, join the robots already stepping rather than a batch of its own
+            joinBatch(team.getCurrentBatch());
+        }
+
+        final double left = batch.getOutput(row, 0) * 2.0 - 1.0;
+        final double right = batch.getOutput(row, 1) * 2.0 - 1.0;
+        batch.submit(row, sensorReadings);
+
+        Double2D wheelDrive = this.wheelDrive;
+        if (wheelDrive == null || wheelDrive.x != left || wheelDrive.y != right)
+        {
+            wheelDrive = new Double2D(left, right);
+            this.wheelDrive = wheelDrive;
+        }
+        return wheelDrive;
+    }
+
+    @Override
+    public Phenotype clone()
+    {
+        BatchedSANEPhenotype robot = new BatchedSANEPhenotype(team);
+        robot.joinBatch(team.getBatchForClone());
+        return robot;
+    }
+
+    @Override
+    public void configure(Map<String, Object> map)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    private void joinBatch(SANEBatch batch)
+    {
+        this.batch = batch;
+        row = batch.addRow();
+    }
+
+    //state shared by a phenotype and all its clones
+    private static class Team
+    {
+        private final SANENetwork network;
+        private final SensorMorphology morphology;
+
+        private SANEBatch batch;
+
+        Team(SANENetwork network, SensorMorphology morphology)
+        {
+            this.network = network;
+            this.morphology = morphology;
+        }
+
+        //robots cloned once a batch has started stepping belong to a new simulation run
+        SANEBatch getBatchForClone()
+        {
+            if (batch == null || batch.hasStarted())
+            {
+                batch = new SANEBatch(network, DEFAULT_TEAM_SIZE);
+            }
+            return batch;
+        }
+
+        //the batch of the robots of the current simulation run
+        SANEBatch getCurrentBatch()
+        {
+            if (batch == null)
+            {
+                batch = new SANEBatch(network, DEFAULT_TEAM_SIZE);
+            }
+            return batch;
+        }
+    }
+}
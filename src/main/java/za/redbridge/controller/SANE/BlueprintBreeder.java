@@ -0,0 +1,129 @@
+package za.redbridge.controller.SANE;
+
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.opp.EvolutionaryOperator;
+import org.encog.ml.ea.species.Species;
+import za.redbridge.controller.SANE.mutate.BlueprintMutateSwitchToRandom;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Breeds blueprints for the workers: chooses two distinct parents from a species, crosses them
+ * over, mutates the children and keeps the valid ones. Shared by the generational and the
+ * steady-state workers, which differ only in when the children are scored and added.
+ */
+class BlueprintBreeder
+{
+    /**
+     * The species being processed.
+     */
+    private final Species species;
+
+    /**
+     * The parent genomes.
+     */
+    private final Genome[] parents;
+
+    /**
+     * The children genomes.
+     */
+    private final Genome[] children;
+
+    /**
+     * Random number generator.
+     */
+    private final Random rnd;
+
+    /**
+     * The parent object.
+     */
+    private final BasicSANE train;
+
+    /**
+     * Construct the breeder.
+     *
+     * @param theTrain   The trainer.
+     * @param theSpecies The species.
+     */
+    BlueprintBreeder(final BasicSANE theTrain, final Species theSpecies)
+    {
+        this.train = theTrain;
+        this.species = theSpecies;
+        this.rnd = this.train.getRandomNumberFactory().factor();
+
+        this.parents = new Genome[this.train.getMaxParents()];
+        this.children = new Genome[this.train.getMaxChildren()];
+    }
+
+    /**
+     * The most children a single call to {@link #breed(List)} produces.
+     */
+    int getMaxChildren()
+    {
+        return this.children.length;
+    }
+
+    /**
+     * Choose a parent.
+     *
+     * @return The chosen parent.
+     */
+    private Genome chooseParent()
+    {
+        final int idx = this.train.getSelection().performSelection(this.rnd,
+                this.species);
+        return this.species.getMembers().get(idx);
+    }
+
+    /**
+     * Produce the valid children of two parents. The children are not scored.
+     *
+     * @param offspring The list the valid children are added to.
+     */
+    void breed(final List<Genome> offspring)
+    {
+        Trace.event("blueprint mating started");
+        //genetic operators for blueprints
+        final EvolutionaryOperator blueprint_crossover = this.train.getBlueprintCrossover();
+        final BlueprintMutateSwitchToRandom blueprint_mutate_random = this.train.getBlueprintMutateRandom();
+        final EvolutionaryOperator blueprint_mutate_offspring = this.train.getBlueprintMutateOffspring();
+
+        this.children[0] = null;
+        this.children[1] = null;
+
+        //choose mating partners, there must be at least two genomes in this species
+        this.parents[0] = chooseParent();
+        this.parents[1] = chooseParent();
+        while (this.parents[0] == this.parents[1])
+        {
+            this.parents[1] = chooseParent();
+        }
+
+        blueprint_crossover.performOperation(this.rnd, this.parents, 0, this.children, 0);
+
+        //neuron population to be passed on as parameter
+        final List<Genome> neurons = this.train.getNeuronPopulation().getSpecies().get(0).getMembers();
+
+        //perform mutation on the offspring
+        for (int i = 0; i < children.length; i++)
+        {
+            blueprint_mutate_random.performOperation(this.rnd, neurons, 0, this.children, i);
+            blueprint_mutate_offspring.performOperation(this.rnd, this.parents, 0, this.children, i);
+        }
+        Trace.event("blueprint mating finished");
+
+        for (Genome child : this.children)
+        {
+            if (child != null)
+            {
+                child.setPopulation(this.parents[0].getPopulation());
+                if (this.train.getRules().isValid(child))
+                {
+                    child.setBirthGeneration(this.train.getIteration());
+                    offspring.add(child);
+                }
+            }
+        }
+    }
+}
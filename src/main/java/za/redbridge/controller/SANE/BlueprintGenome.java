@@ -16,6 +16,9 @@ public class BlueprintGenome extends BasicGenome implements ArrayGenome, Seriali
     //blueprint of neuron combination
     private NeuronGenome[] blueprint;
 
+    //true if the score is only an optimistic bound from a raced evaluation that was stopped
+    private boolean scoreBound;
+
     //constructor - constructs empty blueprint
     public BlueprintGenome(int size)
     {
@@ -65,6 +68,7 @@ public class BlueprintGenome extends BasicGenome implements ArrayGenome, Seriali
         }
         setScore(source.getScore());
         setAdjustedScore(source.getAdjustedScore());
+        scoreBound = sourceNeuron.scoreBound;
     }
 
     @Override
@@ -78,4 +82,14 @@ public class BlueprintGenome extends BasicGenome implements ArrayGenome, Seriali
     {
         return blueprint;
     }
+
+    public boolean isScoreBound()
+    {
+        return scoreBound;
+    }
+
+    public void setScoreBound(boolean scoreBound)
+    {
+        this.scoreBound = scoreBound;
+    }
 }
@@ -12,20 +12,20 @@ import java.io.Serializable;
 
 public class BlueprintGenomeFactory implements GenomeFactory, Serializable
 {
-    //length of blueprint
-    int size;
+    //dimensions of the network
+    private final NetworkDimensions dimensions;
 
     //constructor
-    public BlueprintGenomeFactory(int size)
+    public BlueprintGenomeFactory(NetworkDimensions dimensions)
     {
-        this.size = size;
+        this.dimensions = dimensions;
     }
 
     //creates new blueprint genome with empty blueprint
     @Override
     public BlueprintGenome factor()
     {
-        return new BlueprintGenome(size);
+        return new BlueprintGenome(dimensions.getHiddenSize());
     }
 
     //creates a copy of blueprint genome
@@ -0,0 +1,92 @@
+package za.redbridge.controller.SANE;
+
+import org.encog.ml.ea.genome.Genome;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed capacity buffer the workers add their children to without locking. Each add reserves a
+ * slot with an atomic increment, adds past the capacity are rejected. The contents may only be
+ * read once the workers are done, e.g. after invokeAll returns.
+ */
+class ChildBuffer implements Serializable
+{
+    private static final long serialVersionUID = 4417523080712388531L;
+
+    private Genome[] slots = new Genome[0];
+    private final AtomicInteger next = new AtomicInteger();
+
+    //empty the buffer for a new generation, not thread-safe
+    void reset(int capacity)
+    {
+        if (slots.length != capacity)
+        {
+            slots = new Genome[capacity];
+        } else
+        {
+            Arrays.fill(slots, null);
+        }
+        next.set(0);
+    }
+
+    //returns false if the buffer is full
+    boolean add(Genome genome)
+    {
+        final int slot = next.getAndIncrement();
+        if (slot >= slots.length)
+        {
+            return false;
+        }
+        slots[slot] = genome;
+        return true;
+    }
+
+    //true once as many adds as the capacity have been made, rejected ones included
+    boolean isFull()
+    {
+        return next.get() >= slots.length;
+    }
+
+    int size()
+    {
+        return Math.min(next.get(), slots.length);
+    }
+
+    boolean contains(Genome genome)
+    {
+        for (int i = 0, n = size(); i < n; i++)
+        {
+            if (slots[i] == genome)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //returns a genome that was added more than once, or null if there is none
+    Genome findDuplicate()
+    {
+        final Map<Genome, Boolean> seen = new IdentityHashMap<>();
+        for (int i = 0, n = size(); i < n; i++)
+        {
+            if (seen.put(slots[i], Boolean.TRUE) != null)
+            {
+                return slots[i];
+            }
+        }
+        return null;
+    }
+
+    //view of the children added so far
+    List<Genome> asList()
+    {
+        return Collections.unmodifiableList(Arrays.asList(slots).subList(0, size()));
+    }
+}
@@ -0,0 +1,148 @@
+package za.redbridge.controller.SANE;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of blueprint scores, keyed by the content of the blueprint: the labels and
+ * weights of its neurons, in blueprint order. Blueprints that decode to the same network get the
+ * score of the first one evaluated, without running the simulation again.
+ */
+public class FitnessCache
+{
+    private final Map<Key, Double> scores;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public FitnessCache(final int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+
+        this.scores = new LinkedHashMap<Key, Double>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Double> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the cached score for a blueprint with this key, or null if there is none
+     */
+    public Double get(Key key)
+    {
+        Double score;
+        synchronized (scores)
+        {
+            score = scores.get(key);
+        }
+
+        if (score != null)
+        {
+            hits.incrementAndGet();
+        } else
+        {
+            misses.incrementAndGet();
+        }
+        return score;
+    }
+
+    public void put(Key key, double score)
+    {
+        synchronized (scores)
+        {
+            scores.put(key, score);
+        }
+    }
+
+    public int size()
+    {
+        synchronized (scores)
+        {
+            return scores.size();
+        }
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    //clears the hit and miss counters, the cached scores are kept
+    public void resetStatistics()
+    {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    public static Key keyFor(BlueprintGenome blueprint)
+    {
+        return new Key(blueprint);
+    }
+
+    /**
+     * Content key of a blueprint. Each connection contributes its label and the bits of its
+     * weight.
+     */
+    public static final class Key
+    {
+        private final long[] content;
+        private final int hash;
+
+        private Key(BlueprintGenome blueprint)
+        {
+            NeuronGenome[] neurons = blueprint.getBlueprint();
+            int length = 0;
+            for (NeuronGenome neuron : neurons)
+            {
+                length += 2 * neuron.size();
+            }
+
+            content = new long[length];
+            int i = 0;
+            for (NeuronGenome neuron : neurons)
+            {
+                for (int c = 0, end = neuron.size(); c < end; c++)
+                {
+                    content[i++] = neuron.getLabel(c);
+                    content[i++] = Double.doubleToLongBits(neuron.getWeight(c));
+                }
+            }
+            hash = Arrays.hashCode(content);
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (this == other)
+            {
+                return true;
+            }
+            if (!(other instanceof Key))
+            {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && Arrays.equals(content, key.content);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package za.redbridge.controller.SANE;
+
+import java.util.Random;
+
+/**
+ * Sets of connection labels packed into a long, bit i set meaning label i is in the set. Used by
+ * the neuron operators to keep the labels of a chromosome unique without allocating. Labels must
+ * be below {@link #MAX_LABELS}.
+ */
+public final class LabelSet
+{
+    //number of labels a set can hold
+    public static final int MAX_LABELS = Long.SIZE;
+
+    public static final long EMPTY = 0L;
+
+    private LabelSet()
+    {
+    }
+
+    //set of the labels 0 to count - 1
+    public static long all(int count)
+    {
+        return count == MAX_LABELS ? -1L : (1L << count) - 1;
+    }
+
+    public static long add(long set, int label)
+    {
+        return set | (1L << label);
+    }
+
+    public static long remove(long set, int label)
+    {
+        return set & ~(1L << label);
+    }
+
+    public static boolean contains(long set, int label)
+    {
+        return (set & (1L << label)) != 0;
+    }
+
+    public static int size(long set)
+    {
+        return Long.bitCount(set);
+    }
+
+    //labels of the first length connections of the neuron
+    public static long of(NeuronGenome neuron, int length)
+    {
+        long set = EMPTY;
+        for (int c = 0; c < length; c++)
+        {
+            set = add(set, neuron.getLabel(c));
+        }
+        return set;
+    }
+
+    //uniformly chosen label among the labels 0 to count - 1 not in taken, or -1 if there is none
+    public static int sampleFree(Random random, long taken, int count)
+    {
+        long free = all(count) & ~taken;
+        final int size = size(free);
+        if (size == 0)
+        {
+            return -1;
+        }
+
+        //drop the lowest r labels, the r-th free label is then the lowest one left
+        for (int r = random.nextInt(size); r > 0; r--)
+        {
+            free &= free - 1;
+        }
+        return Long.numberOfTrailingZeros(free);
+    }
+}
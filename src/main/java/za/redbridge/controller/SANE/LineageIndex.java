@@ -0,0 +1,48 @@
+package za.redbridge.controller.SANE;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the offspring produced by each neuron during one generation, for the blueprint
+ * mutation that switches a neuron to one of its offspring. Cleared at the end of every
+ * iteration so the neurons of past generations are not kept reachable.
+ */
+public class LineageIndex implements Serializable
+{
+    private static final long serialVersionUID = -3504163715480938411L;
+
+    private final Map<NeuronGenome, List<NeuronGenome>> children =
+            new IdentityHashMap<NeuronGenome, List<NeuronGenome>>();
+
+    public synchronized void addChild(NeuronGenome parent, NeuronGenome child)
+    {
+        List<NeuronGenome> list = children.get(parent);
+        if (list == null)
+        {
+            list = new ArrayList<NeuronGenome>();
+            children.put(parent, list);
+        }
+        list.add(child);
+    }
+
+    //returns the offspring of a neuron in this generation
+    public synchronized List<NeuronGenome> getChildren(NeuronGenome parent)
+    {
+        List<NeuronGenome> list = children.get(parent);
+        if (list == null)
+        {
+            return Collections.emptyList();
+        }
+        return list;
+    }
+
+    public synchronized void clear()
+    {
+        children.clear();
+    }
+}
@@ -0,0 +1,111 @@
+package za.redbridge.controller.SANE;
+
+import java.io.Serializable;
+
+/**
+ * Dimensions of the networks evolved by SANE, shared by the genome factories, the genetic
+ * operators and the codec. Connection labels below the input size refer to input neurons, the
+ * rest to output neurons.
+ */
+public class NetworkDimensions implements Serializable
+{
+    private static final long serialVersionUID = -2276105413342739006L;
+
+    //6 sensors, 5 hidden neurons and 2 wheels, each neuron connecting to half the inputs and outputs
+    public static final NetworkDimensions DEFAULT = new NetworkDimensions(6, 5, 2);
+
+    private final int inputSize;
+    private final int hiddenSize;
+    private final int outputSize;
+
+    //number of connections of each hidden neuron
+    private final int chromosomeLength;
+
+    //constructor - each neuron connects to half of the inputs and outputs
+    public NetworkDimensions(int inputSize, int hiddenSize, int outputSize)
+    {
+        this(inputSize, hiddenSize, outputSize, (inputSize + outputSize) / 2);
+    }
+
+    public NetworkDimensions(int inputSize, int hiddenSize, int outputSize, int chromosomeLength)
+    {
+        if (inputSize < 1 || hiddenSize < 1 || outputSize < 1)
+        {
+            throw new IllegalArgumentException("Network layers must not be empty");
+        }
+        if (inputSize + outputSize > LabelSet.MAX_LABELS)
+        {
+            throw new IllegalArgumentException("At most " + LabelSet.MAX_LABELS
+                    + " input and output neurons are supported: " + (inputSize + outputSize));
+        }
+        if (chromosomeLength < 1 || chromosomeLength >= inputSize + outputSize)
+        {
+            throw new IllegalArgumentException("Chromosome length must be between 1 and "
+                    + (inputSize + outputSize - 1) + ": " + chromosomeLength);
+        }
+
+        this.inputSize = inputSize;
+        this.hiddenSize = hiddenSize;
+        this.outputSize = outputSize;
+        this.chromosomeLength = chromosomeLength;
+    }
+
+    public int getInputSize()
+    {
+        return inputSize;
+    }
+
+    public int getHiddenSize()
+    {
+        return hiddenSize;
+    }
+
+    public int getOutputSize()
+    {
+        return outputSize;
+    }
+
+    //number of neurons a hidden neuron can connect to
+    public int getIOCount()
+    {
+        return inputSize + outputSize;
+    }
+
+    public int getChromosomeLength()
+    {
+        return chromosomeLength;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof NetworkDimensions))
+        {
+            return false;
+        }
+        NetworkDimensions other = (NetworkDimensions) o;
+        return inputSize == other.inputSize && hiddenSize == other.hiddenSize
+                && outputSize == other.outputSize && chromosomeLength == other.chromosomeLength;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = inputSize;
+        result = 31 * result + hiddenSize;
+        result = 31 * result + outputSize;
+        result = 31 * result + chromosomeLength;
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return inputSize + "-" + hiddenSize + "-" + outputSize + " (" + chromosomeLength
+                + " connections per neuron)";
+    }
+}
@@ -4,8 +4,11 @@ import org.encog.ml.ea.genome.BasicGenome;
 import org.encog.ml.ea.genome.Genome;
 import org.encog.ml.genetic.genome.ArrayGenome;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.*;
+import java.util.Random;
 
 /**
  * Created by jae on 2015/09/10.
@@ -13,78 +16,83 @@ import java.util.*;
  */
 public class NeuronGenome extends BasicGenome implements ArrayGenome, Serializable
 {
-    //array of connections
-    private Connection[] chromosome;
+    private static final long serialVersionUID = -2416094541932367113L;
+
+    //store holding the chromosome, not serialized with the neuron
+    private transient NeuronStore store;
+
+    //connection labels and weights, at offset to offset + length - 1, moved when the store compacts
+    private transient NeuronStore.Block block;
+    private transient int offset;
+    private final int length;
 
     //number of times this neuron has participated in the network
     private int participation;
 
-    //list of children
-    private List<NeuronGenome> children = new ArrayList<NeuronGenome>();
+    //sum of the scores of the networks it participates in, for steady-state evolution
+    private double participationScore;
 
-    //constructor - empty chromosome
-    public NeuronGenome(int size)
+    //constructor - chromosome allocated by the store
+    NeuronGenome(NeuronStore store, NeuronStore.Block block, int offset)
     {
-        chromosome = new Connection[size];
+        this.store = store;
+        this.block = block;
+        this.offset = offset;
+        this.length = store.getChromosomeLength();
     }
 
-    //constructor - receives chromosome
-    public NeuronGenome(Connection[] chromosome)
+    //copy constructor
+    public NeuronGenome(NeuronGenome n)
     {
-        this.chromosome = chromosome;
+        this(n.store.allocate(), n);
     }
 
-    //copy constructor
-    public NeuronGenome(NeuronGenome n)
+    //takes over the chromosome of a newly allocated neuron
+    private NeuronGenome(NeuronGenome allocated, NeuronGenome source)
     {
-        this.chromosome = new Connection[n.chromosome.length];
-        for (int i = 0; i < chromosome.length; i++)
-        {
-            this.chromosome[i] = new Connection(n.chromosome[i]);
-        }
+        this(allocated.store, allocated.block, allocated.offset);
+        System.arraycopy(source.block.labels, source.offset, block.labels, offset, length);
+        System.arraycopy(source.block.weights, source.offset, block.weights, offset, length);
     }
 
-    //initialize chromosome randomly
-    public void randomInit()
+    //initialize chromosome randomly, connecting to ioCount possible input and output neurons
+    public void randomInit(int ioCount)
     {
         Random random = new Random();
 
-        //obtain unique random number by shuffling the list of unique numbers
-        List<Integer> ints = new ArrayList<Integer>();
-        for (int i = 0; i < SANE.IO_COUNT; i++) ints.add(i);
-        Collections.shuffle(ints, random);
-
-        //init chromosome
-        for (int i = 0; i < chromosome.length; i++)
+        //init chromosome with unique random labels
+        long taken = LabelSet.EMPTY;
+        for (int i = 0; i < length; i++)
         {
-            chromosome[i] = new Connection(ints.get(i), random.nextDouble()/*(random.nextFloat()*2) -1*/);
+            final int label = LabelSet.sampleFree(random, taken, ioCount);
+            taken = LabelSet.add(taken, label);
+            set(i, label, random.nextDouble()/*(random.nextFloat()*2) -1*/);
         }
     }
 
     @Override
-    //copies connection object
+    //copies a connection
     public void copy(ArrayGenome source, int sourceIndex, int targetIndex)
     {
-        //creates copy of the source connection and copies it over
-        this.chromosome[targetIndex] = new Connection(((NeuronGenome) source).chromosome[sourceIndex]);
+        NeuronGenome sourceNeuron = (NeuronGenome) source;
+        set(targetIndex, sourceNeuron.getLabel(sourceIndex), sourceNeuron.getWeight(sourceIndex));
     }
 
     @Override
     public void swap(int swap1, int swap2)
     {
-        Connection temp = new Connection(chromosome[swap1]);
-        chromosome[swap1].set(chromosome[swap2]);
-        chromosome[swap2].set(temp);
+        final int label = getLabel(swap1);
+        final double weight = getWeight(swap1);
+        set(swap1, getLabel(swap2), getWeight(swap2));
+        set(swap2, label, weight);
     }
 
     @Override
     public void copy(Genome source)
     {
         NeuronGenome sourceNeuron = (NeuronGenome)source;
-        for (int i = 0; i < chromosome.length; i++)
-        {
-            chromosome[i].set(sourceNeuron.chromosome[i]);
-        }
+        System.arraycopy(sourceNeuron.block.labels, sourceNeuron.offset, block.labels, offset, length);
+        System.arraycopy(sourceNeuron.block.weights, sourceNeuron.offset, block.weights, offset, length);
         setScore(source.getScore());
         setAdjustedScore(source.getAdjustedScore());
     }
@@ -92,20 +100,74 @@ public class NeuronGenome extends BasicGenome implements ArrayGenome, Serializab
     @Override
     public int size()
     {
-        return chromosome.length;
+        return length;
+    }
+
+    //label of the i-th connection
+    public int getLabel(int i)
+    {
+        return block.labels[offset + i];
+    }
+
+    //weight of the i-th connection
+    public double getWeight(int i)
+    {
+        return block.weights[offset + i];
     }
 
-    //returns data
-    public Connection[] getChromosome()
+    public void set(int i, int label, double weight)
     {
-        return chromosome;
+        block.labels[offset + i] = label;
+        block.weights[offset + i] = weight;
     }
 
-    public void clear_children() {children.clear();}
+    //copies the chromosome into the arrays, starting at the given index
+    public void copyTo(int[] labels, double[] weights, int index)
+    {
+        System.arraycopy(block.labels, offset, labels, index, length);
+        System.arraycopy(block.weights, offset, weights, index, length);
+    }
 
-    public void add_children(NeuronGenome n){children.add(n);}
+    //sets the chromosome from the arrays, starting at the given index
+    public void copyFrom(int[] labels, double[] weights, int index)
+    {
+        System.arraycopy(labels, index, block.labels, offset, length);
+        System.arraycopy(weights, index, block.weights, offset, length);
+    }
 
-    public List<NeuronGenome> getChildren(){return children;}
+    //moves the chromosome to the given block and offset, see NeuronStore.compact
+    void moveTo(NeuronStore.Block target, int targetOffset)
+    {
+        System.arraycopy(block.labels, offset, target.labels, targetOffset, length);
+        System.arraycopy(block.weights, offset, target.weights, targetOffset, length);
+        block = target;
+        offset = targetOffset;
+    }
+
+    //writes the neuron's own labels and weights instead of the block they are in
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        out.defaultWriteObject();
+        for (int i = 0; i < length; i++)
+        {
+            out.writeInt(getLabel(i));
+            out.writeDouble(getWeight(i));
+        }
+    }
+
+    //a deserialized neuron gets a block and a store of its own
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        store = new NeuronStore(length, 1);
+        block = new NeuronStore.Block(length);
+        offset = 0;
+        for (int i = 0; i < length; i++)
+        {
+            block.labels[i] = in.readInt();
+            block.weights[i] = in.readDouble();
+        }
+    }
 
     public void addScore(double score)
     {
@@ -134,4 +196,36 @@ public class NeuronGenome extends BasicGenome implements ArrayGenome, Serializab
         setScore(getScore() / participation);
         setAdjustedScore(getScore());
     }
+
+    //steady-state: a network with this neuron joined the population
+    public void addParticipation(double score)
+    {
+        participationScore += score;
+        participation++;
+        updateParticipationScore();
+    }
+
+    //steady-state: a network with this neuron left the population
+    public void removeParticipation(double score)
+    {
+        participationScore -= score;
+        participation--;
+        updateParticipationScore();
+    }
+
+    //steady-state: forget all participation
+    public void resetParticipation()
+    {
+        participationScore = 0;
+        participation = 0;
+        updateParticipationScore();
+    }
+
+    //sets the fitness to the average score of the networks it is in, 0 if there are none
+    public void updateParticipationScore()
+    {
+        double score = participation > 0 ? participationScore / participation : 0;
+        setScore(score);
+        setAdjustedScore(score);
+    }
 }
@@ -12,20 +12,38 @@ import java.io.Serializable;
 
 public class NeuronGenomeFactory implements GenomeFactory, Serializable
 {
-    //length of the connection chromosome
-    int size;
+    //dimensions of the network
+    private final NetworkDimensions dimensions;
+
+    //chromosomes of the neurons created by this factory
+    private final NeuronStore store;
 
     //constructor
-    public NeuronGenomeFactory(int size)
+    public NeuronGenomeFactory(NetworkDimensions dimensions)
+    {
+        this.dimensions = dimensions;
+        this.store = new NeuronStore(dimensions.getChromosomeLength());
+    }
+
+    //storage of the chromosomes
+    public NeuronStore getStore()
     {
-        this.size = size;
+        return store;
     }
 
     //create neuron genome with empty chromosome
     @Override
     public NeuronGenome factor()
     {
-        return new NeuronGenome(size);
+        return store.allocate();
+    }
+
+    //create neuron genome with random connections
+    public NeuronGenome factorRandom()
+    {
+        NeuronGenome genome = factor();
+        genome.randomInit(dimensions.getIOCount());
+        return genome;
     }
 
     //create a copy of neuron genome
@@ -0,0 +1,112 @@
+package za.redbridge.controller.SANE;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Storage for the chromosomes of the neuron genomes. Connection labels and weights are kept in
+ * primitive arrays rather than as objects: each block holds the chromosomes of a fixed number of
+ * neurons back to back, and a neuron is a block and an offset into it. New neurons are
+ * allocated from the current block until it is full. Blocks are never reused, a block is
+ * garbage collected once all the neurons in it have died. A few long-lived neurons would keep
+ * their whole blocks alive, so the trainer compacts the store between generations, moving the
+ * live neurons into a block of their own. A serialized neuron writes only its own chromosome,
+ * not its block or store.
+ */
+public class NeuronStore implements Serializable
+{
+    private static final long serialVersionUID = 2183320540516047735L;
+
+    //neurons per block
+    private static final int DEFAULT_BLOCK_CAPACITY = 1024;
+
+    /**
+     * The chromosomes of a block of neurons. The connections of the neuron at offset o are at
+     * indices o to o + chromosomeLength - 1.
+     */
+    public static final class Block implements Serializable
+    {
+        private static final long serialVersionUID = -6811964960541617324L;
+
+        final int[] labels;
+        final double[] weights;
+
+        Block(int length)
+        {
+            labels = new int[length];
+            weights = new double[length];
+        }
+    }
+
+    private final int chromosomeLength;
+    private final int blockCapacity;
+
+    private Block current;
+    private int used;
+
+    //neurons allocated since the last compaction
+    private int allocatedSinceCompaction;
+
+    public NeuronStore(int chromosomeLength)
+    {
+        this(chromosomeLength, DEFAULT_BLOCK_CAPACITY);
+    }
+
+    public NeuronStore(int chromosomeLength, int blockCapacity)
+    {
+        this.chromosomeLength = chromosomeLength;
+        this.blockCapacity = blockCapacity;
+    }
+
+    public int getChromosomeLength()
+    {
+        return chromosomeLength;
+    }
+
+    //create a neuron with all labels and weights 0
+    public NeuronGenome allocate()
+    {
+        final Block block;
+        final int offset;
+        synchronized (this)
+        {
+            if (current == null || used == blockCapacity)
+            {
+                current = new Block(blockCapacity * chromosomeLength);
+                used = 0;
+            }
+            block = current;
+            offset = used++ * chromosomeLength;
+            allocatedSinceCompaction++;
+        }
+        return new NeuronGenome(this, block, offset);
+    }
+
+    public synchronized int getAllocatedSinceCompaction()
+    {
+        return allocatedSinceCompaction;
+    }
+
+    /**
+     * Move the chromosomes of the live neurons, back to back, into a new block of their own, so
+     * that the blocks they were in can be collected. Neurons that are not passed in keep their
+     * blocks. Must only be called while no other thread is using neurons of this store.
+     *
+     * @param live the neurons still in use, each once
+     */
+    public synchronized void compact(Collection<NeuronGenome> live)
+    {
+        final Block block = new Block(live.size() * chromosomeLength);
+        int offset = 0;
+        for (NeuronGenome neuron : live)
+        {
+            neuron.moveTo(block, offset);
+            offset += chromosomeLength;
+        }
+
+        //new neurons go into a new block
+        current = null;
+        used = 0;
+        allocatedSinceCompaction = 0;
+    }
+}
@@ -84,7 +84,7 @@ public class NeuronWorker implements Callable<Object>
             {
                 // choose an evolutionary operation (i.e. crossover or a type of
                 // mutation) to use
-                System.out.println("Neuron mating started");
+                Trace.event("neuron mating started");
                 final EvolutionaryOperator neuron_crossover = this.train.getNeuronCrossover();
                 final EvolutionaryOperator neuron_mutate = this.train.getNeuronMutate();
 
@@ -126,7 +126,7 @@ public class NeuronWorker implements Callable<Object>
                 }
 
 
-                System.out.println("Neuron mating finished");
+                Trace.event("neuron mating finished");
 
                 // process the new child
                 for (Genome child : this.children)
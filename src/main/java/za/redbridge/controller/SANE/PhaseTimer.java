@@ -0,0 +1,153 @@
+package za.redbridge.controller.SANE;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times the phases of a SANE iteration. For each phase the wall time is recorded, and for the
+ * phases run on the thread pool also the time the tasks spent running (busy time) and waiting
+ * in the executor queue, so the pool utilization of each phase can be worked out.
+ *
+ * Times accumulate until {@link #reset()} is called, normally once per epoch.
+ */
+public class PhaseTimer
+{
+    public enum Phase
+    {
+        NEURON_FITNESS("neuron fitness"),
+        NEURON_BREEDING("neuron breeding"),
+        NEURON_SPECIATION("neuron speciation"),
+        BLUEPRINT_BREEDING("blueprint breeding"),
+        BLUEPRINT_SPECIATION("blueprint speciation");
+
+        private final String label;
+
+        Phase(String label)
+        {
+            this.label = label;
+        }
+
+        public String getLabel()
+        {
+            return label;
+        }
+    }
+
+    private static final int PHASE_COUNT = Phase.values().length;
+
+    //wall time is only measured on the training thread
+    private final long[] wallNanos = new long[PHASE_COUNT];
+    private final long[] startNanos = new long[PHASE_COUNT];
+
+    //task times are added from the pool threads
+    private final AtomicLong[] busyNanos = new AtomicLong[PHASE_COUNT];
+    private final AtomicLong[] queueNanos = new AtomicLong[PHASE_COUNT];
+    private final AtomicLong[] taskCount = new AtomicLong[PHASE_COUNT];
+
+    private volatile int threadCount = 1;
+
+    public PhaseTimer()
+    {
+        for (int i = 0; i < PHASE_COUNT; i++)
+        {
+            busyNanos[i] = new AtomicLong();
+            queueNanos[i] = new AtomicLong();
+            taskCount[i] = new AtomicLong();
+        }
+    }
+
+    //number of pool threads, used for the utilization
+    public void setThreadCount(int threadCount)
+    {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    public void start(Phase phase)
+    {
+        startNanos[phase.ordinal()] = System.nanoTime();
+    }
+
+    public void stop(Phase phase)
+    {
+        wallNanos[phase.ordinal()] += System.nanoTime() - startNanos[phase.ordinal()];
+    }
+
+    /**
+     * Wrap the tasks of a phase so their queue wait and run time are recorded. The tasks are
+     * taken to be submitted when this is called.
+     */
+    public <T> List<Callable<T>> track(final Phase phase, Collection<? extends Callable<T>> tasks)
+    {
+        final long submitted = System.nanoTime();
+        final int index = phase.ordinal();
+
+        List<Callable<T>> tracked = new ArrayList<Callable<T>>(tasks.size());
+        for (final Callable<T> task : tasks)
+        {
+            tracked.add(new Callable<T>()
+            {
+                @Override
+                public T call() throws Exception
+                {
+                    final long start = System.nanoTime();
+                    queueNanos[index].addAndGet(start - submitted);
+                    try
+                    {
+                        return task.call();
+                    }
+                    finally
+                    {
+                        busyNanos[index].addAndGet(System.nanoTime() - start);
+                        taskCount[index].incrementAndGet();
+                    }
+                }
+            });
+        }
+        return tracked;
+    }
+
+    public long getWallNanos(Phase phase)
+    {
+        return wallNanos[phase.ordinal()];
+    }
+
+    public long getBusyNanos(Phase phase)
+    {
+        return busyNanos[phase.ordinal()].get();
+    }
+
+    public long getQueueNanos(Phase phase)
+    {
+        return queueNanos[phase.ordinal()].get();
+    }
+
+    public long getTaskCount(Phase phase)
+    {
+        return taskCount[phase.ordinal()].get();
+    }
+
+    //fraction of the pool kept busy during the phase, 0 for phases without tasks
+    public double getUtilization(Phase phase)
+    {
+        long wall = getWallNanos(phase);
+        if (wall == 0)
+        {
+            return 0;
+        }
+        return (double) getBusyNanos(phase) / ((double) wall * threadCount);
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < PHASE_COUNT; i++)
+        {
+            wallNanos[i] = 0;
+            busyNanos[i].set(0);
+            queueNanos[i].set(0);
+            taskCount[i].set(0);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package za.redbridge.controller.SANE;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the sensor readings of every robot sharing a {@link SANENetwork} during a simulation
+ * tick and evaluates them together once all robots have submitted theirs.
+ *
+ * A robot reads the outputs of the previous evaluation before submitting its readings, so every
+ * robot acts on the readings from the previous tick. Robots can join at any time, a robot that
+ * joins after the first evaluation starts from the initial output. Only used from the
+ * simulation thread.
+ */
+final class SANEBatch
+{
+    //output value before the first evaluation, a wheel drive of 0
+    private static final double INITIAL_OUTPUT = 0.5;
+
+    private final SANENetwork network;
+
+    private int capacity;
+    private int rows;
+
+    //row-per-neuron buffers, see SANENetwork.computeBatch
+    private double[] inputs;
+    private double[] hidden;
+    private double[] outputs;
+
+    private boolean[] submitted;
+    private int submittedCount;
+
+    private boolean started;
+
+    SANEBatch(SANENetwork network, int capacity)
+    {
+        this.network = network;
+        allocate(Math.max(capacity, 1));
+    }
+
+    //adds a robot to the batch and returns its row
+    int addRow()
+    {
+        if (rows == capacity)
+        {
+            allocate(capacity * 2);
+        }
+        for (int o = 0, n = network.getOutputCount(); o < n; o++)
+        {
+            outputs[o * capacity + rows] = INITIAL_OUTPUT;
+        }
+        return rows++;
+    }
+
+    boolean hasStarted()
+    {
+        return started;
+    }
+
+    /**
+     * Store the readings of a robot for this tick. If the robot already submitted readings
+     * since the last evaluation then a new tick has started without every robot stepping, so
+     * evaluate with what has been collected first.
+     */
+    void submit(int row, List<List<Double>> sensorReadings)
+    {
+        started = true;
+
+        if (submitted[row])
+        {
+            evaluate();
+        }
+
+        for (int i = 0, n = network.getInputCount(); i < n; i++)
+        {
+            inputs[i * capacity + row] = sensorReadings.get(i).get(0);
+        }
+        submitted[row] = true;
+
+        if (++submittedCount == rows)
+        {
+            evaluate();
+        }
+    }
+
+    //returns the output of the network for a robot from the last evaluation
+    double getOutput(int row, int output)
+    {
+        return outputs[output * capacity + row];
+    }
+
+    private void evaluate()
+    {
+        network.computeBatch(inputs, hidden, outputs, capacity, rows);
+        for (int r = 0; r < rows; r++)
+        {
+            submitted[r] = false;
+        }
+        submittedCount = 0;
+    }
+
+    //resizes the buffers, keeping the rows of the robots already in the batch
+    private void allocate(int newCapacity)
+    {
+        inputs = resize(inputs, network.getInputCount(), newCapacity);
+        hidden = resize(hidden, network.getHiddenCount(), newCapacity);
+        outputs = resize(outputs, network.getOutputCount(), newCapacity);
+        submitted = submitted == null
+                ? new boolean[newCapacity] : Arrays.copyOf(submitted, newCapacity);
+        capacity = newCapacity;
+    }
+
+    //copies a row-per-neuron buffer into one with room for newCapacity rows per neuron
+    private double[] resize(double[] buffer, int neurons, int newCapacity)
+    {
+        final double[] resized = new double[neurons * newCapacity];
+        if (buffer != null)
+        {
+            for (int n = 0; n < neurons; n++)
+            {
+                System.arraycopy(buffer, n * capacity, resized, n * newCapacity, rows);
+            }
+        }
+        return resized;
+    }
+}
@@ -22,22 +22,48 @@ public class SANECODEC implements GeneticCODEC, Serializable
      */
     private static final long serialVersionUID = 35124L;
 
+    //dimensions of the decoded networks
+    private final NetworkDimensions dimensions;
+
+    //decode to a SANENetwork instead of an Encog BasicNetwork
+    private final boolean flatNetwork;
+
+    public SANECODEC(NetworkDimensions dimensions)
+    {
+        this(dimensions, false);
+    }
+
+    public SANECODEC(NetworkDimensions dimensions, boolean flatNetwork)
+    {
+        this.dimensions = dimensions;
+        this.flatNetwork = flatNetwork;
+    }
+
     @Override
     public MLMethod decode(Genome genome)
     {
         BlueprintGenome blueprintGenome = (BlueprintGenome) genome;
 
+        final int inputSize = dimensions.getInputSize();
+        final int hiddenSize = dimensions.getHiddenSize();
+        final int outputSize = dimensions.getOutputSize();
+
+        if (flatNetwork)
+        {
+            return new SANENetwork(blueprintGenome.getBlueprint(), inputSize, outputSize);
+        }
+
         //basic neural network
         BasicNetwork network = new BasicNetwork();
 
         //add input layer
-        network.addLayer(new BasicLayer(null, false, SANE.INPUT_SIZE));
+        network.addLayer(new BasicLayer(null, false, inputSize));
 
         //add hidden layer
-        network.addLayer(new BasicLayer(new ActivationSigmoid(), false, SANE.HIDDEN_SIZE));
+        network.addLayer(new BasicLayer(new ActivationSigmoid(), false, hiddenSize));
 
         //add output layer
-        network.addLayer(new BasicLayer(new ActivationSigmoid(), false, SANE.OUTPUT_SIZE));
+        network.addLayer(new BasicLayer(new ActivationSigmoid(), false, outputSize));
 
         //finalize network structure
         network.getStructure().finalizeStructure();
@@ -47,17 +73,17 @@ public class SANECODEC implements GeneticCODEC, Serializable
 
         //System.out.println("Network construction , length"+ blueprint.length);
 
-        for (int i = 0; i < SANE.INPUT_SIZE; i++)
+        for (int i = 0; i < inputSize; i++)
         {
-            for (int h = 0; h < SANE.HIDDEN_SIZE; h++)
+            for (int h = 0; h < hiddenSize; h++)
             {
                 network.enableConnection(0,i,h,false);
             }
         }
 
-        for (int h = 0; h < SANE.HIDDEN_SIZE; h++)
+        for (int h = 0; h < hiddenSize; h++)
         {
-            for (int o = 0; o < SANE.OUTPUT_SIZE; o++)
+            for (int o = 0; o < outputSize; o++)
             {
                 network.enableConnection(0,h,o,false);
             }
@@ -65,14 +91,15 @@ public class SANECODEC implements GeneticCODEC, Serializable
         //construct weighted connection based on the blueprint
         for (int i = 0; i < blueprint.length; i++)
         {
-            for (Connection connection : blueprint[i].getChromosome())
+            final NeuronGenome neuron = blueprint[i];
+            for (int c = 0, end = neuron.size(); c < end; c++)
             {
-                int label = connection.getLabel();
-                double weight = connection.getWeight();
+                int label = neuron.getLabel(c);
+                double weight = neuron.getWeight(c);
 
                 //System.out.println("Label : " + label +"    Weight : "+weight);
                 //connect to to input neuron
-                if (label < SANE.INPUT_SIZE)
+                if (label < inputSize)
                 {
                     network.enableConnection(0, label, i, true);
                     network.setWeight(0, label, i, weight);
@@ -80,8 +107,8 @@ public class SANECODEC implements GeneticCODEC, Serializable
                 //connect to to output neuron
                 else
                 {
-                    network.enableConnection(1, i, label - SANE.INPUT_SIZE, true);
-                    network.setWeight(1, i, label - SANE.INPUT_SIZE, weight);
+                    network.enableConnection(1, i, label - inputSize, true);
+                    network.setWeight(1, i, label - inputSize, weight);
                 }
             }
         }
@@ -0,0 +1,355 @@
+package za.redbridge.controller.SANE;
+
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.species.Species;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact snapshot of the SANE populations. Only the connection labels and weights of the
+ * neurons, the neuron indices of the blueprints and the scores are stored, in a flat binary
+ * format, rather than the serialized object graph.
+ *
+ * Blueprints may still point at neurons that are no longer in the neuron population (elite
+ * blueprints keep their neurons). Those neurons are stored after the population neurons.
+ *
+ * The settings of the run that wrote the checkpoint are stored with it as name/value pairs, so
+ * that a resumed run can be checked against them. The checkpoint does not interpret them.
+ */
+public class SANECheckpoint
+{
+    private static final int MAGIC = 0x53414E45; // "SANE"
+    private static final int VERSION = 3;
+
+    private final int iteration;
+
+    private final int inputSize;
+    private final int outputSize;
+
+    private final int chromosomeLength;
+    private final int neuronCount;
+    private final int populationNeuronCount;
+    private final int[] labels;
+    private final double[] weights;
+    private final double[] neuronScores;
+
+    private final int blueprintSize;
+    private final int blueprintCount;
+    private final int[] blueprintNeurons;
+    private final double[] blueprintScores;
+
+    //index of the best blueprint, -1 if unknown
+    private final int bestBlueprint;
+
+    //settings of the run, null if not recorded (before version 3)
+    private final Map<String, String> settings;
+
+    private SANECheckpoint(int iteration, int inputSize, int outputSize, int chromosomeLength,
+                           int neuronCount, int populationNeuronCount, int[] labels,
+                           double[] weights, double[] neuronScores, int blueprintSize,
+                           int blueprintCount, int[] blueprintNeurons, double[] blueprintScores,
+                           int bestBlueprint, Map<String, String> settings)
+    {
+        this.iteration = iteration;
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
+        this.chromosomeLength = chromosomeLength;
+        this.neuronCount = neuronCount;
+        this.populationNeuronCount = populationNeuronCount;
+        this.labels = labels;
+        this.weights = weights;
+        this.neuronScores = neuronScores;
+        this.blueprintSize = blueprintSize;
+        this.blueprintCount = blueprintCount;
+        this.blueprintNeurons = blueprintNeurons;
+        this.blueprintScores = blueprintScores;
+        this.bestBlueprint = bestBlueprint;
+        this.settings = settings != null ? Collections.unmodifiableMap(settings) : null;
+    }
+
+    /**
+     * Copy the state of the populations. Must be called from the training thread between
+     * iterations, the returned checkpoint shares nothing with the populations.
+     */
+    public static SANECheckpoint capture(BasicSANE train)
+    {
+        return capture(train, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Copy the state of the populations, along with the settings of the run.
+     */
+    public static SANECheckpoint capture(BasicSANE train, Map<String, String> settings)
+    {
+        final List<Genome> neuronMembers = train.getNeuronPopulation().getSpecies().get(0).getMembers();
+        final List<Genome> blueprintMembers = train.getPopulation().getSpecies().get(0).getMembers();
+
+        //number the neurons, population neurons first
+        final Map<NeuronGenome, Integer> neuronIndex = new IdentityHashMap<>();
+        final List<NeuronGenome> neurons = new ArrayList<>(neuronMembers.size());
+        for (Genome genome : neuronMembers)
+        {
+            NeuronGenome neuron = (NeuronGenome) genome;
+            if (!neuronIndex.containsKey(neuron))
+            {
+                neuronIndex.put(neuron, neurons.size());
+                neurons.add(neuron);
+            }
+        }
+        final int populationNeuronCount = neurons.size();
+
+        int blueprintSize = 0;
+        for (Genome genome : blueprintMembers)
+        {
+            NeuronGenome[] blueprint = ((BlueprintGenome) genome).getBlueprint();
+            blueprintSize = Math.max(blueprintSize, blueprint.length);
+            for (NeuronGenome neuron : blueprint)
+            {
+                if (!neuronIndex.containsKey(neuron))
+                {
+                    neuronIndex.put(neuron, neurons.size());
+                    neurons.add(neuron);
+                }
+            }
+        }
+
+        final NetworkDimensions dimensions = train.getDimensions();
+        final int chromosomeLength = dimensions.getChromosomeLength();
+        final int neuronCount = neurons.size();
+        final int[] labels = new int[neuronCount * chromosomeLength];
+        final double[] weights = new double[neuronCount * chromosomeLength];
+        final double[] neuronScores = new double[neuronCount];
+        for (int n = 0; n < neuronCount; n++)
+        {
+            NeuronGenome neuron = neurons.get(n);
+            neuron.copyTo(labels, weights, n * chromosomeLength);
+            neuronScores[n] = neuron.getScore();
+        }
+
+        final int blueprintCount = blueprintMembers.size();
+        final int[] blueprintNeurons = new int[blueprintCount * blueprintSize];
+        final double[] blueprintScores = new double[blueprintCount];
+        int bestBlueprint = -1;
+        for (int b = 0; b < blueprintCount; b++)
+        {
+            BlueprintGenome blueprint = (BlueprintGenome) blueprintMembers.get(b);
+            for (int h = 0; h < blueprintSize; h++)
+            {
+                blueprintNeurons[b * blueprintSize + h] = neuronIndex.get(blueprint.getBlueprint()[h]);
+            }
+            blueprintScores[b] = blueprint.getScore();
+            if (blueprint == train.getBestGenome())
+            {
+                bestBlueprint = b;
+            }
+        }
+
+        return new SANECheckpoint(train.getIteration(), dimensions.getInputSize(),
+                dimensions.getOutputSize(), chromosomeLength, neuronCount,
+                populationNeuronCount, labels, weights, neuronScores, blueprintSize,
+                blueprintCount, blueprintNeurons, blueprintScores, bestBlueprint,
+                new LinkedHashMap<>(settings));
+    }
+
+    public void write(OutputStream outputStream) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(iteration);
+
+        out.writeInt(inputSize);
+        out.writeInt(outputSize);
+        out.writeInt(chromosomeLength);
+        out.writeInt(neuronCount);
+        out.writeInt(populationNeuronCount);
+        for (int n = 0; n < neuronCount; n++)
+        {
+            for (int c = n * chromosomeLength, end = c + chromosomeLength; c < end; c++)
+            {
+                out.writeShort(labels[c]);
+                out.writeDouble(weights[c]);
+            }
+            out.writeDouble(neuronScores[n]);
+        }
+
+        out.writeInt(blueprintSize);
+        out.writeInt(blueprintCount);
+        for (int b = 0; b < blueprintCount; b++)
+        {
+            for (int h = b * blueprintSize, end = h + blueprintSize; h < end; h++)
+            {
+                out.writeInt(blueprintNeurons[h]);
+            }
+            out.writeDouble(blueprintScores[b]);
+        }
+        out.writeInt(bestBlueprint);
+
+        out.writeInt(settings.size());
+        for (Map.Entry<String, String> setting : settings.entrySet())
+        {
+            out.writeUTF(setting.getKey());
+            out.writeUTF(setting.getValue());
+        }
+        out.flush();
+    }
+
+    public static SANECheckpoint read(Path path) throws IOException
+    {
+        try (InputStream inputStream = Files.newInputStream(path))
+        {
+            return read(inputStream);
+        }
+    }
+
+    public static SANECheckpoint read(InputStream inputStream) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC)
+        {
+            throw new IOException("Not a SANE checkpoint");
+        }
+        int version = in.readInt();
+        if (version < 1 || version > VERSION)
+        {
+            throw new IOException("Unsupported checkpoint version: " + version);
+        }
+        final int iteration = in.readInt();
+
+        //version 1 checkpoints always used the default network
+        final int inputSize = version > 1 ? in.readInt() : NetworkDimensions.DEFAULT.getInputSize();
+        final int outputSize = version > 1 ? in.readInt() : NetworkDimensions.DEFAULT.getOutputSize();
+        final int chromosomeLength = in.readInt();
+        final int neuronCount = in.readInt();
+        final int populationNeuronCount = in.readInt();
+        final int[] labels = new int[neuronCount * chromosomeLength];
+        final double[] weights = new double[neuronCount * chromosomeLength];
+        final double[] neuronScores = new double[neuronCount];
+        for (int n = 0; n < neuronCount; n++)
+        {
+            for (int c = n * chromosomeLength, end = c + chromosomeLength; c < end; c++)
+            {
+                labels[c] = in.readShort();
+                weights[c] = in.readDouble();
+            }
+            neuronScores[n] = in.readDouble();
+        }
+
+        final int blueprintSize = in.readInt();
+        final int blueprintCount = in.readInt();
+        final int[] blueprintNeurons = new int[blueprintCount * blueprintSize];
+        final double[] blueprintScores = new double[blueprintCount];
+        for (int b = 0; b < blueprintCount; b++)
+        {
+            for (int h = b * blueprintSize, end = h + blueprintSize; h < end; h++)
+            {
+                blueprintNeurons[h] = in.readInt();
+            }
+            blueprintScores[b] = in.readDouble();
+        }
+        final int bestBlueprint = in.readInt();
+
+        Map<String, String> settings = null;
+        if (version > 2)
+        {
+            settings = new LinkedHashMap<>();
+            for (int i = 0, n = in.readInt(); i < n; i++)
+            {
+                settings.put(in.readUTF(), in.readUTF());
+            }
+        }
+
+        return new SANECheckpoint(iteration, inputSize, outputSize, chromosomeLength, neuronCount,
+                populationNeuronCount, labels, weights, neuronScores, blueprintSize,
+                blueprintCount, blueprintNeurons, blueprintScores, bestBlueprint, settings);
+    }
+
+    /**
+     * Recreate the genomes of the checkpoint, adding the population neurons and the blueprints
+     * to the given species in their original order.
+     *
+     * @param neuronFactory creates the restored neurons
+     * @return the best blueprint, or null if it was not recorded
+     */
+    public BlueprintGenome restore(NeuronGenomeFactory neuronFactory, Species neuronSpecies,
+                                   Species blueprintSpecies)
+    {
+        final NeuronGenome[] neurons = new NeuronGenome[neuronCount];
+        for (int n = 0; n < neuronCount; n++)
+        {
+            neurons[n] = neuronFactory.factor();
+            neurons[n].copyFrom(labels, weights, n * chromosomeLength);
+            neurons[n].setScore(neuronScores[n]);
+            neurons[n].setAdjustedScore(neuronScores[n]);
+
+            //neurons only kept alive by blueprints are not part of the population
+            if (n < populationNeuronCount)
+            {
+                neuronSpecies.add(neurons[n]);
+            }
+        }
+
+        BlueprintGenome best = null;
+        for (int b = 0; b < blueprintCount; b++)
+        {
+            NeuronGenome[] blueprint = new NeuronGenome[blueprintSize];
+            for (int h = 0; h < blueprintSize; h++)
+            {
+                blueprint[h] = neurons[blueprintNeurons[b * blueprintSize + h]];
+            }
+            BlueprintGenome genome = new BlueprintGenome(blueprint);
+            genome.setScore(blueprintScores[b]);
+            genome.setAdjustedScore(blueprintScores[b]);
+            blueprintSpecies.add(genome);
+
+            if (b == bestBlueprint)
+            {
+                best = genome;
+            }
+        }
+        return best;
+    }
+
+    public int getIteration()
+    {
+        return iteration;
+    }
+
+    public int getNeuronPopulationSize()
+    {
+        return populationNeuronCount;
+    }
+
+    public int getBlueprintPopulationSize()
+    {
+        return blueprintCount;
+    }
+
+    /**
+     * @return the settings of the run that wrote the checkpoint, null if the checkpoint predates
+     *         recording them
+     */
+    public Map<String, String> getSettings()
+    {
+        return settings;
+    }
+
+    public NetworkDimensions getDimensions()
+    {
+        return new NetworkDimensions(inputSize, blueprintSize, outputSize, chromosomeLength);
+    }
+}
@@ -61,11 +61,13 @@ public class SANEControllerEvolution extends BasicTraining implements
          *
          * @param blueprintPopulation    The population.
          * @param theScoreFunction The score function.
+         * @param theDimensions    The dimensions of the evolved networks.
          */
         public SANEControllerEvolutionHelper(final Population blueprintPopulation, final Population neuronPopulation,
-                                              final CalculateScore theScoreFunction)
+                                              final CalculateScore theScoreFunction,
+                                              final NetworkDimensions theDimensions)
         {
-            super(blueprintPopulation, neuronPopulation, theScoreFunction);
+            super(blueprintPopulation, neuronPopulation, theScoreFunction, theDimensions);
         }
 
     }
@@ -85,6 +87,21 @@ public class SANEControllerEvolution extends BasicTraining implements
      */
     public SANEControllerEvolution(final MethodFactory phenotypeFactory,
                                    final CalculateScore calculateScore, final int populationSize)
+    {
+        this(phenotypeFactory, calculateScore, populationSize, NetworkDimensions.DEFAULT);
+    }
+
+    /**
+     * Construct a method genetic algorithm.
+     *
+     * @param phenotypeFactory The phenotype factory.
+     * @param calculateScore   The score calculation object.
+     * @param populationSize   The population size.
+     * @param dimensions       The dimensions of the evolved networks.
+     */
+    public SANEControllerEvolution(final MethodFactory phenotypeFactory,
+                                   final CalculateScore calculateScore, final int populationSize,
+                                   final NetworkDimensions dimensions)
     {
         super(TrainingImplementationType.Iterative);
         Random random = new Random();
@@ -97,17 +114,14 @@ public class SANEControllerEvolution extends BasicTraining implements
         final Species neuronSpecies = neuron_population.createSpecies();
         neuronSpecies.setOffspringCount(populationSize);
         //factory to produce genomes
-        NeuronGenomeFactory neuronFac = new NeuronGenomeFactory(SANE.CHROMOSOME_LENGTH);
-        BlueprintGenomeFactory blueprintFac = new BlueprintGenomeFactory(SANE.HIDDEN_SIZE);
+        NeuronGenomeFactory neuronFac = new NeuronGenomeFactory(dimensions);
+        BlueprintGenomeFactory blueprintFac = new BlueprintGenomeFactory(dimensions);
 
         //initialize Neuron population
         for (int i = 0; i < neuron_population.getPopulationSize(); i++)
         {
-            //create neuron genome
-            final NeuronGenome genome = neuronFac.factor();
-
-            //intialize chromosome randomly
-            genome.randomInit();
+            //create neuron genome, chromosome intialized randomly
+            final NeuronGenome genome = neuronFac.factorRandom();
 
             //add the genome
             neuronSpecies.add(genome);
@@ -121,7 +135,7 @@ public class SANEControllerEvolution extends BasicTraining implements
 
             //final MLMethodGenome genome = new MLMethodGenome(chromosomeNetwork);
 
-            NeuronGenome[] blueprint = new NeuronGenome[SANE.HIDDEN_SIZE];
+            NeuronGenome[] blueprint = new NeuronGenome[dimensions.getHiddenSize()];
 
             List<Genome> neurons = neuron_population.getSpecies().get(0).getMembers();
 
@@ -146,13 +160,62 @@ public class SANEControllerEvolution extends BasicTraining implements
         blueprint_population.setGenomeFactory(blueprintFac);
         neuron_population.setGenomeFactory(neuronFac);
 
+        createGenetic(blueprint_population, neuron_population, calculateScore, dimensions);
+    }
+
+    /**
+     * Resume training from a checkpoint.
+     *
+     * @param calculateScore The score calculation object.
+     * @param checkpoint     The checkpoint to restore the populations from.
+     */
+    public SANEControllerEvolution(final CalculateScore calculateScore,
+                                   final SANECheckpoint checkpoint)
+    {
+        super(TrainingImplementationType.Iterative);
+
+        final Population blueprint_population =
+                new BasicPopulation(checkpoint.getBlueprintPopulationSize(), null);
+        final Species blueprintSpecies = blueprint_population.createSpecies();
+
+        final Population neuron_population =
+                new BasicPopulation(checkpoint.getNeuronPopulationSize(), null);
+        final Species neuronSpecies = neuron_population.createSpecies();
+        neuronSpecies.setOffspringCount(checkpoint.getNeuronPopulationSize());
+
+        final NetworkDimensions dimensions = checkpoint.getDimensions();
+        final NeuronGenomeFactory neuronFac = new NeuronGenomeFactory(dimensions);
+
+        //recreate the neurons and blueprints
+        final BlueprintGenome best = checkpoint.restore(neuronFac, neuronSpecies, blueprintSpecies);
+
+        blueprintSpecies.setLeader(blueprintSpecies.getMembers().get(0));
+        neuronSpecies.setLeader(neuronSpecies.getMembers().get(0));
+
+        //set population factory
+        blueprint_population.setGenomeFactory(new BlueprintGenomeFactory(dimensions));
+        neuron_population.setGenomeFactory(neuronFac);
+
+        createGenetic(blueprint_population, neuron_population, calculateScore, dimensions);
+
+        //continue from the saved iteration without rescoring
+        this.genetic.resume(checkpoint.getIteration(), best);
+    }
+
+    //create and configure the trainer
+    private void createGenetic(final Population blueprint_population,
+                               final Population neuron_population,
+                               final CalculateScore calculateScore,
+                               final NetworkDimensions dimensions)
+    {
         // create the trainer
-        this.genetic = new SANEControllerEvolutionHelper(blueprint_population, neuron_population,calculateScore);
+        this.genetic = new SANEControllerEvolutionHelper(blueprint_population, neuron_population,calculateScore,
+                dimensions);
 
         this.genetic.setMaxChildren(2);
         this.genetic.setMaxParents(2);
         //SANE codec
-        this.genetic.setCODEC(new SANECODEC());
+        this.genetic.setCODEC(new SANECODEC(dimensions));
 
         //50% of population is preserved
         this.genetic.setEliteRate(0.5);
@@ -0,0 +1,357 @@
+package za.redbridge.controller.SANE;
+
+import org.encog.ml.MLRegression;
+import org.encog.ml.data.MLData;
+import org.encog.ml.data.basic.BasicMLData;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Compact evaluator for a decoded blueprint. The connections of each hidden neuron are stored
+ * in flat arrays (input connections and output connections separately), so only enabled
+ * connections are visited and evaluation is a sequential scan over primitive arrays.
+ *
+ * Not thread-safe: the hidden layer activations are kept in a buffer. Use {@link #clone()} to
+ * get a copy that shares the weights but has its own buffer.
+ */
+public class SANENetwork implements MLRegression, Cloneable, Serializable
+{
+    private static final long serialVersionUID = 6174352960386420813L;
+
+    private final int inputCount;
+    private final int hiddenCount;
+    private final int outputCount;
+
+    //connections into hidden neuron h are at [inputStart[h], inputStart[h + 1])
+    private final int[] inputStart;
+    private final int[] inputIndex;
+    private final double[] inputWeight;
+
+    //connections out of hidden neuron h are at [outputStart[h], outputStart[h + 1])
+    private final int[] outputStart;
+    private final int[] outputIndex;
+    private final double[] outputWeight;
+
+    private transient double[] hidden;
+
+    //constructor - builds the connection arrays from the blueprint
+    public SANENetwork(NeuronGenome[] blueprint, int inputCount, int outputCount)
+    {
+        this.inputCount = inputCount;
+        this.hiddenCount = blueprint.length;
+        this.outputCount = outputCount;
+
+        int connectionCount = 0;
+        for (NeuronGenome neuron : blueprint)
+        {
+            connectionCount += neuron.size();
+        }
+
+        inputStart = new int[hiddenCount + 1];
+        outputStart = new int[hiddenCount + 1];
+        int[] inputIndex = new int[connectionCount];
+        double[] inputWeight = new double[connectionCount];
+        int[] outputIndex = new int[connectionCount];
+        double[] outputWeight = new double[connectionCount];
+
+        int inputs = 0;
+        int outputs = 0;
+        for (int h = 0; h < hiddenCount; h++)
+        {
+            inputStart[h] = inputs;
+            outputStart[h] = outputs;
+            final NeuronGenome neuron = blueprint[h];
+            for (int c = 0, end = neuron.size(); c < end; c++)
+            {
+                int label = neuron.getLabel(c);
+                //connect to input neuron
+                if (label < inputCount)
+                {
+                    inputIndex[inputs] = label;
+                    inputWeight[inputs++] = neuron.getWeight(c);
+                }
+                //connect to output neuron
+                else
+                {
+                    outputIndex[outputs] = label - inputCount;
+                    outputWeight[outputs++] = neuron.getWeight(c);
+                }
+            }
+        }
+        inputStart[hiddenCount] = inputs;
+        outputStart[hiddenCount] = outputs;
+
+        this.inputIndex = trim(inputIndex, inputs);
+        this.inputWeight = trim(inputWeight, inputs);
+        this.outputIndex = trim(outputIndex, outputs);
+        this.outputWeight = trim(outputWeight, outputs);
+
+        hidden = new double[hiddenCount];
+    }
+
+    //copy constructor - shares the (immutable) connection arrays
+    private SANENetwork(SANENetwork n)
+    {
+        this.inputCount = n.inputCount;
+        this.hiddenCount = n.hiddenCount;
+        this.outputCount = n.outputCount;
+        this.inputStart = n.inputStart;
+        this.inputIndex = n.inputIndex;
+        this.inputWeight = n.inputWeight;
+        this.outputStart = n.outputStart;
+        this.outputIndex = n.outputIndex;
+        this.outputWeight = n.outputWeight;
+        this.hidden = new double[hiddenCount];
+    }
+
+    //constructor - takes over the connection arrays
+    private SANENetwork(int inputCount, int outputCount, int[] inputStart, int[] inputIndex,
+                        double[] inputWeight, int[] outputStart, int[] outputIndex,
+                        double[] outputWeight)
+    {
+        this.inputCount = inputCount;
+        this.hiddenCount = inputStart.length - 1;
+        this.outputCount = outputCount;
+        this.inputStart = inputStart;
+        this.inputIndex = inputIndex;
+        this.inputWeight = inputWeight;
+        this.outputStart = outputStart;
+        this.outputIndex = outputIndex;
+        this.outputWeight = outputWeight;
+        this.hidden = new double[hiddenCount];
+    }
+
+    /**
+     * Write the connection arrays, for sending the network to another process. Smaller and
+     * much faster to read back than the serialized form.
+     */
+    public void write(DataOutput out) throws IOException
+    {
+        out.writeInt(inputCount);
+        out.writeInt(outputCount);
+        writeArray(out, inputStart);
+        writeArray(out, inputIndex);
+        writeArray(out, inputWeight);
+        writeArray(out, outputStart);
+        writeArray(out, outputIndex);
+        writeArray(out, outputWeight);
+    }
+
+    //read a network written by write(DataOutput)
+    public static SANENetwork read(DataInput in) throws IOException
+    {
+        final int inputCount = in.readInt();
+        final int outputCount = in.readInt();
+        return new SANENetwork(inputCount, outputCount, readIntArray(in), readIntArray(in),
+                readDoubleArray(in), readIntArray(in), readIntArray(in), readDoubleArray(in));
+    }
+
+    /**
+     * Evaluate the network without allocating.
+     *
+     * @param input  the input values, at least {@link #getInputCount()} long
+     * @param output receives the output values, at least {@link #getOutputCount()} long
+     */
+    public void compute(double[] input, double[] output)
+    {
+        double[] hidden = this.hidden;
+        if (hidden == null)
+        {
+            hidden = this.hidden = new double[hiddenCount];
+        }
+
+        for (int h = 0; h < hiddenCount; h++)
+        {
+            double sum = 0;
+            for (int c = inputStart[h], end = inputStart[h + 1]; c < end; c++)
+            {
+                sum += inputWeight[c] * input[inputIndex[c]];
+            }
+            hidden[h] = sigmoid(sum);
+        }
+
+        for (int o = 0; o < outputCount; o++)
+        {
+            output[o] = 0;
+        }
+        for (int h = 0; h < hiddenCount; h++)
+        {
+            final double activation = hidden[h];
+            for (int c = outputStart[h], end = outputStart[h + 1]; c < end; c++)
+            {
+                output[outputIndex[c]] += outputWeight[c] * activation;
+            }
+        }
+        for (int o = 0; o < outputCount; o++)
+        {
+            output[o] = sigmoid(output[o]);
+        }
+    }
+
+    /**
+     * Evaluate the network for a batch of inputs in one pass. The buffers are laid out one row
+     * per neuron with one column per batch entry, so value j of entry r is at
+     * {@code j * stride + r} and the inner loops run over contiguous memory.
+     *
+     * @param inputs    {@link #getInputCount()} rows of input values
+     * @param hidden    scratch space for {@link #getHiddenCount()} rows
+     * @param outputs   receives {@link #getOutputCount()} rows of output values
+     * @param stride    the row length of the buffers
+     * @param batchSize the number of entries in the batch, at most stride
+     */
+    public void computeBatch(double[] inputs, double[] hidden, double[] outputs, int stride,
+                             int batchSize)
+    {
+        for (int h = 0; h < hiddenCount; h++)
+        {
+            final int row = h * stride;
+            for (int r = 0; r < batchSize; r++)
+            {
+                hidden[row + r] = 0;
+            }
+            for (int c = inputStart[h], end = inputStart[h + 1]; c < end; c++)
+            {
+                final double weight = inputWeight[c];
+                final int source = inputIndex[c] * stride;
+                for (int r = 0; r < batchSize; r++)
+                {
+                    hidden[row + r] += weight * inputs[source + r];
+                }
+            }
+            for (int r = 0; r < batchSize; r++)
+            {
+                hidden[row + r] = sigmoid(hidden[row + r]);
+            }
+        }
+
+        for (int o = 0; o < outputCount; o++)
+        {
+            final int row = o * stride;
+            for (int r = 0; r < batchSize; r++)
+            {
+                outputs[row + r] = 0;
+            }
+        }
+        for (int h = 0; h < hiddenCount; h++)
+        {
+            final int source = h * stride;
+            for (int c = outputStart[h], end = outputStart[h + 1]; c < end; c++)
+            {
+                final double weight = outputWeight[c];
+                final int target = outputIndex[c] * stride;
+                for (int r = 0; r < batchSize; r++)
+                {
+                    outputs[target + r] += weight * hidden[source + r];
+                }
+            }
+        }
+        for (int o = 0; o < outputCount; o++)
+        {
+            final int row = o * stride;
+            for (int r = 0; r < batchSize; r++)
+            {
+                outputs[row + r] = sigmoid(outputs[row + r]);
+            }
+        }
+    }
+
+    @Override
+    public MLData compute(MLData input)
+    {
+        double[] output = new double[outputCount];
+        compute(input.getData(), output);
+        return new BasicMLData(output);
+    }
+
+    @Override
+    public int getInputCount()
+    {
+        return inputCount;
+    }
+
+    @Override
+    public int getOutputCount()
+    {
+        return outputCount;
+    }
+
+    public int getHiddenCount()
+    {
+        return hiddenCount;
+    }
+
+    @Override
+    public SANENetwork clone()
+    {
+        return new SANENetwork(this);
+    }
+
+    //same function as Encog's ActivationSigmoid
+    private static double sigmoid(double x)
+    {
+        return 1.0 / (1.0 + Math.exp(-x));
+    }
+
+    private static void writeArray(DataOutput out, int[] array) throws IOException
+    {
+        out.writeInt(array.length);
+        for (int value : array)
+        {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeArray(DataOutput out, double[] array) throws IOException
+    {
+        out.writeInt(array.length);
+        for (double value : array)
+        {
+            out.writeDouble(value);
+        }
+    }
+
+    private static int[] readIntArray(DataInput in) throws IOException
+    {
+        final int[] array = new int[in.readInt()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = in.readInt();
+        }
+        return array;
+    }
+
+    private static double[] readDoubleArray(DataInput in) throws IOException
+    {
+        final double[] array = new double[in.readInt()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = in.readDouble();
+        }
+        return array;
+    }
+
+    private static int[] trim(int[] array, int length)
+    {
+        if (array.length == length)
+        {
+            return array;
+        }
+        int[] trimmed = new int[length];
+        System.arraycopy(array, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    private static double[] trim(double[] array, int length)
+    {
+        if (array.length == length)
+        {
+            return array;
+        }
+        double[] trimmed = new double[length];
+        System.arraycopy(array, 0, trimmed, 0, length);
+        return trimmed;
+    }
+}
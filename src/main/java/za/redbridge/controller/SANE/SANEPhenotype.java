@@ -1,7 +1,7 @@
 package za.redbridge.controller.SANE;
 
-import org.encog.ml.data.MLData;
-import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.MLRegression;
+import org.encog.neural.flat.FlatNetwork;
 import org.encog.neural.networks.BasicNetwork;
 import sim.util.Double2D;
 import za.redbridge.controller.NEATM.sensor.SensorMorphology;
@@ -20,16 +20,26 @@ import java.util.Map;
 public class SANEPhenotype implements Phenotype
 {
 
-    private final BasicNetwork network;
+    private final MLRegression network;
     private final SensorMorphology morphology;
 
-    private final MLData input;
+    // flat form of a BasicNetwork, computed directly as BasicNetwork.compute wraps its arrays
+    private final FlatNetwork flatNetwork;
+
+    private final double[] input;
+    private final double[] output;
     private final List<AgentSensor> sensors;
 
-    public SANEPhenotype(BasicNetwork network, SensorMorphology morphology)
+    // last wheel drive returned, reused while the network output stays the same
+    private Double2D wheelDrive;
+
+    //network is either a BasicNetwork or a SANENetwork
+    public SANEPhenotype(MLRegression network, SensorMorphology morphology)
     {
         this.network = network;
         this.morphology = morphology;
+        this.flatNetwork = network instanceof SANENetwork
+                ? null : ((BasicNetwork) network).getFlat();
 
         // Initialise sensors
         final int numSensors = morphology.getNumSensors();
@@ -38,7 +48,8 @@ public class SANEPhenotype implements Phenotype
             sensors.add(morphology.getSensor(i));
         }
 
-        input = new BasicMLData(numSensors);
+        input = new double[numSensors];
+        output = new double[network.getOutputCount()];
 
     }
     @Override
@@ -47,17 +58,35 @@ public class SANEPhenotype implements Phenotype
         return sensors;
     }
 
+    /**
+     * Called once per robot per simulation tick. The network is computed into preallocated
+     * arrays; the only allocation is the returned {@link Double2D}, which is immutable and so is
+     * created whenever the wheel drive changes. With sigmoid outputs that is nearly every tick.
+     */
     @Override
     public Double2D step(List<List<Double>> sensorReadings) {
-        final MLData input = this.input;
-        for (int i = 0, n = input.size(); i < n; i++) {
-            input.setData(i, sensorReadings.get(i).get(0));
+        final double[] input = this.input;
+        for (int i = 0, n = input.length; i < n; i++) {
+            input[i] = sensorReadings.get(i).get(0);
         }
 
-        MLData output = network.compute(input);
+        final double[] output = this.output;
+        if (network instanceof SANENetwork)
+        {
+            ((SANENetwork) network).compute(input, output);
+        } else
+        {
+            flatNetwork.compute(input, output);
+        }
 
-        System.out.println("left wheel : " + output.getData(0) + "   right wheel : " + output.getData(1));
-        return new Double2D(output.getData(0) * 2.0 - 1.0, output.getData(1) * 2.0 - 1.0);
+        final double left = output[0] * 2.0 - 1.0;
+        final double right = output[1] * 2.0 - 1.0;
+        Double2D wheelDrive = this.wheelDrive;
+        if (wheelDrive == null || wheelDrive.x != left || wheelDrive.y != right) {
+            wheelDrive = new Double2D(left, right);
+            this.wheelDrive = wheelDrive;
+        }
+        return wheelDrive;
     }
 
     @Override
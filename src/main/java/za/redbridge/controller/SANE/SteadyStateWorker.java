@@ -0,0 +1,79 @@
+package za.redbridge.controller.SANE;
+
+import org.encog.EncogError;
+import org.encog.ml.ea.exception.EARuntimeError;
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.species.Species;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * A worker for steady-state evolution. Breeds a pair of blueprints from the current population
+ * and evaluates them. Breeding is done under the trainer's breeding lock, as the population
+ * changes while workers run. The children are returned rather than added to the population,
+ * the trainer inserts them once they are scored.
+ */
+public class SteadyStateWorker implements Callable<List<Genome>>
+{
+    /**
+     * Breeds the children.
+     */
+    private final BlueprintBreeder breeder;
+
+    /**
+     * The parent object.
+     */
+    private final BasicSANE train;
+
+    /**
+     * Construct the worker.
+     *
+     * @param theTrain   The trainer.
+     * @param theSpecies The species.
+     */
+    public SteadyStateWorker(final BasicSANE theTrain, final Species theSpecies)
+    {
+        this.train = theTrain;
+        this.breeder = new BlueprintBreeder(theTrain, theSpecies);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Genome> call()
+    {
+        final List<Genome> offspring = new ArrayList<Genome>(this.breeder.getMaxChildren());
+        int tries = this.train.getMaxOperationErrors();
+        while (offspring.isEmpty())
+        {
+            try
+            {
+                synchronized (this.train.getBreedingLock())
+                {
+                    this.breeder.breed(offspring);
+                }
+            }
+            catch (EARuntimeError e)
+            {
+                tries--;
+                if (tries < 0)
+                {
+                    throw new EncogError(
+                            "Could not perform a successful genetic operaton after "
+                                    + this.train.getMaxOperationErrors()
+                                    + " tries.");
+                }
+            }
+        }
+
+        //evaluate outside the lock
+        for (Genome child : offspring)
+        {
+            this.train.calculateScore(child);
+        }
+        return offspring;
+    }
+}
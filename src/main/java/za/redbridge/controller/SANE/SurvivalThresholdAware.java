@@ -0,0 +1,23 @@
+package za.redbridge.controller.SANE;
+
+/**
+ * A score function that can make use of the score a blueprint needs to survive selection, e.g.
+ * to stop evaluating blueprints that cannot reach it. {@link BasicSANE} sets the threshold
+ * before the blueprints of each generation are evaluated.
+ */
+public interface SurvivalThresholdAware
+{
+    /**
+     * @param threshold the lowest score that survives truncation selection in the current
+     *                  population, or NaN if there is none, in which case every evaluation must
+     *                  be run in full
+     */
+    void setSurvivalThreshold(double threshold);
+
+    /**
+     * @return true if the last score calculated on the calling thread is only a bound on the
+     *         score, because the evaluation was cut short, so it must not be reused for other
+     *         blueprints
+     */
+    boolean isLastScoreBound();
+}
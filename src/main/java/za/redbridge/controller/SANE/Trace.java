@@ -0,0 +1,161 @@
+package za.redbridge.controller.SANE;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Low overhead event tracing for the training threads. Off by default, in which case recording
+ * an event is a single volatile read. When enabled, each thread records its events into its own
+ * fixed-size ring buffer, so threads never contend and only the most recent events are kept.
+ * The buffers can be dumped at any time.
+ *
+ * Messages should be constants, anything that varies goes in the value, so that recording an
+ * event does not allocate.
+ */
+public final class Trace
+{
+    //events kept per thread
+    private static final int BUFFER_SIZE = 4096;
+
+    private static volatile boolean enabled;
+
+    private static final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Buffer> localBuffer = new ThreadLocal<Buffer>()
+    {
+        @Override
+        protected Buffer initialValue()
+        {
+            Buffer buffer = new Buffer(Thread.currentThread().getName());
+            buffers.add(buffer);
+            return buffer;
+        }
+    };
+
+    private Trace()
+    {
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled)
+    {
+        Trace.enabled = enabled;
+    }
+
+    public static void event(String message)
+    {
+        if (enabled)
+        {
+            localBuffer.get().add(message, Long.MIN_VALUE);
+        }
+    }
+
+    public static void event(String message, long value)
+    {
+        if (enabled)
+        {
+            localBuffer.get().add(message, value);
+        }
+    }
+
+    /**
+     * Write the buffered events of all threads in time order. Threads may keep recording while
+     * the buffers are dumped, so the most recent events can be missing or out of order.
+     */
+    public static void dump(Writer out) throws IOException
+    {
+        List<Event> events = new ArrayList<>();
+        for (Buffer buffer : buffers)
+        {
+            buffer.collect(events);
+        }
+        Collections.sort(events, new Comparator<Event>()
+        {
+            @Override
+            public int compare(Event a, Event b)
+            {
+                return Long.compare(a.time, b.time);
+            }
+        });
+
+        PrintWriter writer = new PrintWriter(out);
+        for (Event event : events)
+        {
+            writer.print(event.time);
+            writer.print(" [");
+            writer.print(event.thread);
+            writer.print("] ");
+            writer.print(event.message);
+            if (event.value != Long.MIN_VALUE)
+            {
+                writer.print(' ');
+                writer.print(event.value);
+            }
+            writer.println();
+        }
+        writer.flush();
+    }
+
+    //ring buffer, only written by its owning thread
+    private static class Buffer
+    {
+        final String thread;
+        final long[] times = new long[BUFFER_SIZE];
+        final String[] messages = new String[BUFFER_SIZE];
+        final long[] values = new long[BUFFER_SIZE];
+
+        //total events recorded, the next slot is count % BUFFER_SIZE
+        volatile long count;
+
+        Buffer(String thread)
+        {
+            this.thread = thread;
+        }
+
+        void add(String message, long value)
+        {
+            final long n = count;
+            final int slot = (int) (n % BUFFER_SIZE);
+            times[slot] = System.nanoTime();
+            messages[slot] = message;
+            values[slot] = value;
+            count = n + 1;
+        }
+
+        void collect(List<Event> events)
+        {
+            final long n = count;
+            for (long i = Math.max(0, n - BUFFER_SIZE); i < n; i++)
+            {
+                final int slot = (int) (i % BUFFER_SIZE);
+                events.add(new Event(times[slot], thread, messages[slot], values[slot]));
+            }
+        }
+    }
+
+    private static class Event
+    {
+        final long time;
+        final String thread;
+        final String message;
+        final long value;
+
+        Event(long time, String thread, String message, long value)
+        {
+            this.time = time;
+            this.thread = thread;
+            this.message = message;
+            this.value = value;
+        }
+    }
+}
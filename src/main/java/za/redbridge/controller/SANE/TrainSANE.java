@@ -39,6 +39,17 @@ public class TrainSANE extends BasicSANE implements MLTrain
         super(blueprintPopulation, neuronPopulation, theScoreFunction);
     }
 
+    /**
+     * Create a trainer for a score function and network dimensions.
+     * @param blueprintPopulation The population.
+     * @param theScoreFunction The score function.
+     * @param theDimensions The dimensions of the evolved networks.
+     */
+    public TrainSANE(Population blueprintPopulation, Population neuronPopulation, CalculateScore theScoreFunction,
+                     NetworkDimensions theDimensions) {
+        super(blueprintPopulation, neuronPopulation, theScoreFunction, theDimensions);
+    }
+
     /**
      * Create a trainer for training data.
      * @param thePopulation The population.
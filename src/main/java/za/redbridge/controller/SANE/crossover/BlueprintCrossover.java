@@ -3,8 +3,8 @@ package za.redbridge.controller.SANE.crossover;
 import org.encog.ml.ea.genome.Genome;
 import org.encog.ml.ea.opp.EvolutionaryOperator;
 import org.encog.ml.ea.train.EvolutionaryAlgorithm;
+import za.redbridge.controller.SANE.BasicSANE;
 import za.redbridge.controller.SANE.BlueprintGenome;
-import za.redbridge.controller.SANE.SANE;
 
 import java.util.Random;
 
@@ -17,12 +17,12 @@ public class BlueprintCrossover implements EvolutionaryOperator
     /**
      * The owner.
      */
-    private EvolutionaryAlgorithm owner;
+    private BasicSANE owner;
 
     @Override
     public void init(EvolutionaryAlgorithm evolutionaryAlgorithm)
     {
-        owner = evolutionaryAlgorithm;
+        owner = (BasicSANE) evolutionaryAlgorithm;
     }
 
     @Override
@@ -42,8 +42,10 @@ public class BlueprintCrossover implements EvolutionaryOperator
     public void performOperation(Random random, Genome[] parents, int parentIndex,
                                  Genome[] offspring, int offspringIndex)
     {
+        final int hiddenSize = owner.getDimensions().getHiddenSize();
+
         //point of crossover
-        int point = random.nextInt(SANE.HIDDEN_SIZE);
+        int point = random.nextInt(hiddenSize);
 
         //two parents for mating
         BlueprintGenome mother = (BlueprintGenome)parents[parentIndex];
@@ -63,7 +65,7 @@ public class BlueprintCrossover implements EvolutionaryOperator
             offspring2.copy(father, i ,i);
         }
         //after crossover point
-        for (int i = point; i < SANE.HIDDEN_SIZE; i++)
+        for (int i = point; i < hiddenSize; i++)
         {
             offspring1.copy(father, i, i);
             offspring2.copy(mother, i ,i);
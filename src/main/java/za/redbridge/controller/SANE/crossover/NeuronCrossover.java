@@ -5,13 +5,10 @@ import org.encog.ml.ea.opp.EvolutionaryOperator;
 import org.encog.ml.ea.train.EvolutionaryAlgorithm;
 import org.encog.ml.genetic.GeneticError;
 import za.redbridge.controller.SANE.BasicSANE;
-import za.redbridge.controller.SANE.Connection;
+import za.redbridge.controller.SANE.LabelSet;
 import za.redbridge.controller.SANE.NeuronGenome;
-import za.redbridge.controller.SANE.SANE;
 
-import java.util.HashSet;
 import java.util.Random;
-import java.util.Set;
 
 /**
  * Created by jae on 2015/09/11.
@@ -45,14 +42,16 @@ public class NeuronCrossover implements EvolutionaryOperator
     }
 
 
-    //returns connection with no repeat
-    private static Connection getNotTaken(final NeuronGenome source,
-                                   final Set<Integer> taken) {
+    //sets the target connection to the first connection of source with no repeat,
+    //returns the taken labels including the new one
+    private static long copyNotTaken(final NeuronGenome source, final NeuronGenome target,
+                                     final int targetIndex, final long taken) {
 
-        for (final Connection trial : source.getChromosome()) {
-            if (!taken.contains(trial.getLabel())) {
-                taken.add(trial.getLabel());
-                return new Connection(trial.getLabel(), trial.getWeight());
+        for (int c = 0, end = source.size(); c < end; c++) {
+            final int label = source.getLabel(c);
+            if (!LabelSet.contains(taken, label)) {
+                target.set(targetIndex, label, source.getWeight(c));
+                return LabelSet.add(taken, label);
             }
         }
 
@@ -64,8 +63,10 @@ public class NeuronCrossover implements EvolutionaryOperator
     public void performOperation(Random random, Genome[] parents, int parentIndex,
                                  Genome[] offspring, int offspringIndex)
     {
+        final int chromosomeLength = owner.getDimensions().getChromosomeLength();
+
         //point of crossover
-        int point = random.nextInt(SANE.CHROMOSOME_LENGTH);
+        int point = random.nextInt(chromosomeLength);
 
         //two parents for mating
         NeuronGenome mother = (NeuronGenome) parents[parentIndex];
@@ -83,14 +84,14 @@ public class NeuronCrossover implements EvolutionaryOperator
         {
             parentCopy = new NeuronGenome(mother);
             offspring[offspringIndex + 1] = parentCopy;
-            mother.add_children(parentCopy);
+            this.owner.getLineageIndex().addChild(mother, parentCopy);
         } else
         {
             parentCopy = new NeuronGenome(father);
             offspring[offspringIndex + 1] = parentCopy;
-            father.add_children(parentCopy);
+            this.owner.getLineageIndex().addChild(father, parentCopy);
         }
-        final Set<Integer> taken = new HashSet<Integer>();
+        long taken = LabelSet.EMPTY;
 
         //only need one offspring
         if (random.nextFloat() >= 0.5)
@@ -99,11 +100,11 @@ public class NeuronCrossover implements EvolutionaryOperator
             for (int i = 0; i < point; i++)
             {
                 offspring1.copy(mother, i, i);
-                taken.add(mother.getChromosome()[i].getLabel());
+                taken = LabelSet.add(taken, mother.getLabel(i));
             }
-            for (int i = point; i < SANE.CHROMOSOME_LENGTH; i++)
+            for (int i = point; i < chromosomeLength; i++)
             {
-                offspring1.getChromosome()[i] = getNotTaken(father, taken);
+                taken = copyNotTaken(father, offspring1, i, taken);
 
                 //offspring1.copy(father, i, i);
             }
@@ -113,17 +114,17 @@ public class NeuronCrossover implements EvolutionaryOperator
             for (int i = 0; i < point; i++)
             {
                 offspring1.copy(father, i, i);
-                taken.add(father.getChromosome()[i].getLabel());
+                taken = LabelSet.add(taken, father.getLabel(i));
             }
-            for (int i = point; i < SANE.CHROMOSOME_LENGTH; i++)
+            for (int i = point; i < chromosomeLength; i++)
             {
-                offspring1.getChromosome()[i] = getNotTaken(mother, taken);
+                taken = copyNotTaken(mother, offspring1, i, taken);
                 //offspring1.copy(mother,i,i);
             }
         }
 
         //keep track of children for blueprint mutation
-        mother.add_children(offspring1);
-        father.add_children(offspring1);
+        this.owner.getLineageIndex().addChild(mother, offspring1);
+        this.owner.getLineageIndex().addChild(father, offspring1);
     }
 }
@@ -3,9 +3,9 @@ package za.redbridge.controller.SANE.mutate;
 import org.encog.ml.ea.genome.Genome;
 import org.encog.ml.ea.opp.EvolutionaryOperator;
 import org.encog.ml.ea.train.EvolutionaryAlgorithm;
+import za.redbridge.controller.SANE.BasicSANE;
 import za.redbridge.controller.SANE.BlueprintGenome;
 import za.redbridge.controller.SANE.NeuronGenome;
-import za.redbridge.controller.SANE.SANE;
 
 import java.util.List;
 import java.util.Random;
@@ -18,7 +18,7 @@ public class BlueprintMutateSwitchToOffspring implements EvolutionaryOperator
     /**
      * The owner.
      */
-    private EvolutionaryAlgorithm owner;
+    private BasicSANE owner;
 
     //chance of mutation occurring
     private double mutation_rate;
@@ -31,7 +31,7 @@ public class BlueprintMutateSwitchToOffspring implements EvolutionaryOperator
     @Override
     public void init(EvolutionaryAlgorithm evolutionaryAlgorithm)
     {
-        owner = evolutionaryAlgorithm;
+        owner = (BasicSANE) evolutionaryAlgorithm;
     }
 
     @Override
@@ -54,15 +54,15 @@ public class BlueprintMutateSwitchToOffspring implements EvolutionaryOperator
         BlueprintGenome B =  (BlueprintGenome)BlueprintGenomes[parentIndex];
 
         //perform mutation on each neuron reference
-        for (int i = 0; i < SANE.HIDDEN_SIZE; i++)
+        for (int i = 0, n = owner.getDimensions().getHiddenSize(); i < n; i++)
         {
             if(random.nextFloat() <= mutation_rate)
             {
                 //neuron reference to mutate
                 NeuronGenome neuron = B.getBlueprint()[i];
 
-                //children of the neuron
-                List<NeuronGenome> children = neuron.getChildren();
+                //children of the neuron in this generation
+                List<NeuronGenome> children = owner.getLineageIndex().getChildren(neuron);
 
                 //switch to a random offspring with 50% chance
                 if (random.nextFloat() >= 0.5 && !children.isEmpty())
@@ -3,9 +3,9 @@ package za.redbridge.controller.SANE.mutate;
 import org.encog.ml.ea.genome.Genome;
 import org.encog.ml.ea.opp.EvolutionaryOperator;
 import org.encog.ml.ea.train.EvolutionaryAlgorithm;
+import za.redbridge.controller.SANE.BasicSANE;
 import za.redbridge.controller.SANE.BlueprintGenome;
 import za.redbridge.controller.SANE.NeuronGenome;
-import za.redbridge.controller.SANE.SANE;
 
 import java.util.List;
 import java.util.Random;
@@ -20,7 +20,7 @@ public class BlueprintMutateSwitchToRandom implements EvolutionaryOperator
     /**
      * The owner.
      */
-    private EvolutionaryAlgorithm owner;
+    private BasicSANE owner;
 
     //chance of mutation occuring
     private double mutation_rate;
@@ -33,7 +33,7 @@ public class BlueprintMutateSwitchToRandom implements EvolutionaryOperator
     @Override
     public void init(EvolutionaryAlgorithm evolutionaryAlgorithm)
     {
-        owner = evolutionaryAlgorithm;
+        owner = (BasicSANE) evolutionaryAlgorithm;
     }
 
     @Override
@@ -62,7 +62,7 @@ public class BlueprintMutateSwitchToRandom implements EvolutionaryOperator
         NeuronGenome neuron;
 
         //perform mutation on each neuron reference
-        for (int i = 0; i < SANE.HIDDEN_SIZE; i++)
+        for (int i = 0, n = owner.getDimensions().getHiddenSize(); i < n; i++)
         {
             if(random.nextFloat() <= mutation_rate)
             {
@@ -91,7 +91,7 @@ public class BlueprintMutateSwitchToRandom implements EvolutionaryOperator
         NeuronGenome neuron;
 
         //perform mutation on each neuron reference
-        for (int i = 0; i < SANE.HIDDEN_SIZE; i++)
+        for (int i = 0, n = owner.getDimensions().getHiddenSize(); i < n; i++)
         {
             if (random.nextFloat() <= mutation_rate)
             {
@@ -3,12 +3,11 @@ package za.redbridge.controller.SANE.mutate;
 import org.encog.ml.ea.genome.Genome;
 import org.encog.ml.ea.opp.EvolutionaryOperator;
 import org.encog.ml.ea.train.EvolutionaryAlgorithm;
+import za.redbridge.controller.SANE.BasicSANE;
+import za.redbridge.controller.SANE.LabelSet;
 import za.redbridge.controller.SANE.NeuronGenome;
-import za.redbridge.controller.SANE.SANE;
 
-import java.util.HashSet;
 import java.util.Random;
-import java.util.Set;
 
 /**
  * Created by jae on 2015/09/11.
@@ -20,7 +19,7 @@ public class NeuronMutate implements EvolutionaryOperator
     /**
      * The owner.
      */
-    private EvolutionaryAlgorithm owner;
+    private BasicSANE owner;
 
     //chance of mutation occurring
     private double mutation_rate;
@@ -33,7 +32,7 @@ public class NeuronMutate implements EvolutionaryOperator
     @Override
     public void init(EvolutionaryAlgorithm evolutionaryAlgorithm)
     {
-        owner = evolutionaryAlgorithm;
+        owner = (BasicSANE) evolutionaryAlgorithm;
     }
 
     @Override
@@ -55,30 +54,31 @@ public class NeuronMutate implements EvolutionaryOperator
         //candidate neuron for mutation
         NeuronGenome neuron = (NeuronGenome)offspring[offspringIndex];
 
+        final int chromosomeLength = owner.getDimensions().getChromosomeLength();
+        final int ioCount = owner.getDimensions().getIOCount();
+
+        //labels currently in use by the neuron
+        long taken = LabelSet.of(neuron, chromosomeLength);
+
         //perform mutation for each connection gene
-        for (int i = 0; i < SANE.CHROMOSOME_LENGTH; i++)
+        for (int i = 0; i < chromosomeLength; i++)
         {
             if(random.nextFloat() <= mutation_rate)
             {
-                //obtain unique random number by shuffling the list of unique numbers
-                Set<Integer> ints = new HashSet<Integer>();
-                for (int k = 0; k < SANE.CHROMOSOME_LENGTH; k++)
-                {
-                    ints.add(neuron.getChromosome()[k].getLabel());
-                }
-
-                //mutate connection label
-                int new_label = random.nextInt(SANE.IO_COUNT);
-                while (ints.contains(new_label))
+                //mutate connection label, keeping it if every label is in use
+                final int old_label = neuron.getLabel(i);
+                int new_label = LabelSet.sampleFree(random, taken, ioCount);
+                if (new_label < 0)
                 {
-                    new_label = random.nextInt(SANE.IO_COUNT);
+                    new_label = old_label;
                 }
+                taken = LabelSet.add(LabelSet.remove(taken, old_label), new_label);
 
                 //weight mutated by multiplying with value between -2 and 2;
-                double new_weight = neuron.getChromosome()[i].getWeight() * ((random.nextDouble() * 4) - 2);
+                double new_weight = neuron.getWeight(i) * ((random.nextDouble() * 4) - 2);
 
                 //update information
-                neuron.getChromosome()[i].set(new_label, new_weight);
+                neuron.set(i, new_label, new_weight);
             }
         }
     }
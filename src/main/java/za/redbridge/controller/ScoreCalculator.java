@@ -1,18 +1,34 @@
 package za.redbridge.controller;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
+import org.encog.EncogError;
 import org.encog.ml.CalculateScore;
 import org.encog.ml.MLMethod;
+import org.encog.ml.MLRegression;
 import org.encog.neural.networks.BasicNetwork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import sim.display.Console;
 import za.redbridge.controller.NEATM.sensor.SensorMorphology;
+import za.redbridge.controller.SANE.BatchedSANEPhenotype;
+import za.redbridge.controller.SANE.SANENetwork;
 import za.redbridge.controller.SANE.SANEPhenotype;
+import za.redbridge.controller.SANE.SurvivalThresholdAware;
 import za.redbridge.simulator.Simulation;
 import za.redbridge.simulator.SimulationGUI;
 import za.redbridge.simulator.config.SimConfig;
@@ -25,50 +41,105 @@ import za.redbridge.simulator.phenotype.Phenotype;
  * 
  * Created by jamie on 2014/09/09.
  */
-public class ScoreCalculator implements CalculateScore {
+public class ScoreCalculator implements CalculateScore, SurvivalThresholdAware {
 
     private static final Logger log = LoggerFactory.getLogger(ScoreCalculator.class);
 
+    /** Fitness bonus for a run that collects everything at the first tick. */
+    private static final double TIME_BONUS = 20;
+
+    /** Shared pool for running the simulations of a single genome at the same time. */
+    private static ExecutorService runExecutor;
+
     private final SimConfig simConfig;
     private final int simulationRuns;
     private final SensorMorphology sensorMorphology;
+    private final boolean parallelRuns;
+
+    private boolean batchedInference;
+
+    // Racing: ticks between checks of the bound on a genome's score, 0 if disabled
+    private int raceInterval;
+    private double maxTeamFitness;
+    private double raceOptimism;
+    // Replay every raced run that finished with Simulation.run() and compare the results
+    private boolean raceCheck;
+    private volatile double survivalThreshold = Double.NaN;
+    // Whether the last score calculated on each thread is a bound
+    private final ThreadLocal<Boolean> lastScoreBound = new ThreadLocal<>();
+
+    // Worker processes to run the simulations in, null to run them in this process
+    private WorkerProcessPool workerPool;
+
+    // One reusable simulation per evaluating thread
+    private final ThreadLocal<PooledSimulation> simulationPool = new ThreadLocal<>();
+    private boolean simulationPooling = true;
+    private final AtomicLong poolHits = new AtomicLong();
+    private final AtomicLong poolMisses = new AtomicLong();
 
-    private final DescriptiveStatistics performanceStats = new SynchronizedDescriptiveStatistics();
-    private final DescriptiveStatistics scoreStats = new SynchronizedDescriptiveStatistics();
-    private final DescriptiveStatistics sensorStats;
+    // Adaptive evaluation: runs to start with, 0 if every genome gets all its runs
+    private int initialRuns;
+    private double confidenceZ;
+
+    private final AtomicLong racedEvaluations = new AtomicLong();
+    private final AtomicLong stoppedEvaluations = new AtomicLong();
+    private final AtomicLong ticksRun = new AtomicLong();
+    private final AtomicLong ticksSkipped = new AtomicLong();
+
+    private final StreamingStatistics performanceStats = new StreamingStatistics(true);
+    private final StreamingStatistics scoreStats = new StreamingStatistics();
+    private final StreamingStatistics runStats = new StreamingStatistics();
+    private final StreamingStatistics sensorStats;
 
     public ScoreCalculator(SimConfig simConfig, int simulationRuns,
             SensorMorphology sensorMorphology) {
+        this(simConfig, simulationRuns, sensorMorphology, false);
+    }
+
+    /**
+     * @param parallelRuns if true, the simulation runs for a genome are run at the same time,
+     *                     each on its own {@link Simulation} instance. Every run is seeded from
+     *                     its index, so the runs see the same environments either way
+     */
+    public ScoreCalculator(SimConfig simConfig, int simulationRuns,
+            SensorMorphology sensorMorphology, boolean parallelRuns) {
         this.simConfig = simConfig;
         this.simulationRuns = simulationRuns;
         this.sensorMorphology = sensorMorphology;
+        this.parallelRuns = parallelRuns;
 
         // If fixed morphology then don't record sensor stats
-        this.sensorStats = isEvolvingMorphology() ? new SynchronizedDescriptiveStatistics() : null;
+        this.sensorStats = isEvolvingMorphology() ? new StreamingStatistics() : null;
     }
 
     @Override
     public double calculateScore(MLMethod method) {
         long start = System.nanoTime();
 
-        BasicNetwork network = (BasicNetwork) method;
-        RobotFactory robotFactory = new HomogeneousRobotFactory(getPhenotypeForNetwork(network),
-                simConfig.getRobotMass(), simConfig.getRobotRadius(), simConfig.getRobotColour(),
-                simConfig.getObjectsRobots());
+        MLRegression network = (MLRegression) method;
+        Evaluation evaluation;
+        if (workerPool != null) {
+            evaluation = workerPool.evaluate(network, survivalThreshold);
+        } else {
+            evaluation = evaluate(network, survivalThreshold);
+        }
+        double score = evaluation.score;
+        lastScoreBound.set(evaluation.stopped);
 
-        // Create the simulation and run it
-        Simulation simulation = new Simulation(simConfig, robotFactory);
-        simulation.setStopOnceCollected(true);
-        double fitness = 0;
-        for (int i = 0; i < simulationRuns; i++) {
-            simulation.run();
-            fitness += simulation.getFitness().getTeamFitness();
-            fitness += 20 * (1.0 - simulation.getProgressFraction()); // Time bonus
+        runStats.addValue(evaluation.runs);
+        if (evaluation.raced) {
+            racedEvaluations.incrementAndGet();
+            ticksRun.addAndGet(evaluation.ticksRun);
+            ticksSkipped.addAndGet(evaluation.ticksSkipped);
         }
 
-        // Get the fitness and update the total score
-        double score = fitness / simulationRuns;
-        scoreStats.addValue(score);
+        // Update the total score
+        if (evaluation.stopped) {
+            // Only a bound on the score is known, keep it out of the score stats
+            stoppedEvaluations.incrementAndGet();
+        } else {
+            scoreStats.addValue(score);
+        }
 
         if (isEvolvingMorphology()) {
             sensorStats.addValue(network.getInputCount());
@@ -82,15 +153,438 @@ public class ScoreCalculator implements CalculateScore {
         return score;
     }
 
-    public void demo(MLMethod method) {
-        // Create the robot and resource factories
-        BasicNetwork network = (BasicNetwork) method;
-        RobotFactory robotFactory = new HomogeneousRobotFactory(getPhenotypeForNetwork(network),
+    /**
+     * Run the simulations of the network in this process, without recording any statistics.
+     *
+     * @param threshold the survival threshold, NaN if there is none
+     */
+    Evaluation evaluate(MLRegression network, double threshold) {
+        Race race = startRace(threshold);
+        double[] runFitness = new double[simulationRuns];
+
+        // Runs asked for, including any skipped once the genome was stopped
+        int scheduledRuns = isAdaptive() ? Math.min(initialRuns, simulationRuns) : simulationRuns;
+        int runs = runSimulations(network, race, 0, scheduledRuns, runFitness);
+        while (runs < simulationRuns && !isStopped(race)
+                && needsMoreRuns(runFitness, runs, threshold)) {
+            scheduledRuns++;
+            runs += runSimulations(network, race, runs, 1, runFitness);
+        }
+
+        // Get the fitness
+        if (race == null) {
+            return new Evaluation(getMean(runFitness, runs), runs, false, false, 0, 0);
+        }
+        // Only a genome that skipped some of its simulation is scored by its bound
+        double score = race.isAbandoned()
+                ? race.getBound(scheduledRuns) : getMean(runFitness, runs);
+        return new Evaluation(score, runs, true, race.isAbandoned(), race.getTicksRun(),
+                race.getTicksSkipped());
+    }
+
+    private static double getMean(double[] values, int count) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return sum / count;
+    }
+
+    /**
+     * Run simulations first to first + count - 1, storing the fitness of each run in runFitness.
+     *
+     * @return the number of runs started, fewer than count if the genome was stopped
+     */
+    private int runSimulations(MLRegression network, Race race, int first, int count,
+            double[] runFitness) {
+        if (parallelRuns && count > 1) {
+            runSimulationsInParallel(network, race, first, count, runFitness);
+            return count;
+        }
+
+        // Get this thread's simulation and run it
+        Simulation simulation = acquireSimulation(network);
+        try {
+            for (int i = first; i < first + count; i++) {
+                runFitness[i] = runSimulation(simulation, i, race);
+                if (isStopped(race)) {
+                    if (i < first + count - 1) {
+                        // The rest of the runs are skipped
+                        race.abandon();
+                    }
+                    return i - first + 1;
+                }
+            }
+            return count;
+        } finally {
+            releaseSimulation();
+        }
+    }
+
+    private void runSimulationsInParallel(MLRegression network, final Race race, int first,
+            int count, double[] runFitness) {
+        List<Callable<Double>> runs = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            // Networks are not thread-safe so each run gets its own copy
+            final MLRegression runNetwork = copyNetwork(network);
+            final int run = i;
+            runs.add(new Callable<Double>() {
+                @Override
+                public Double call() {
+                    if (race != null && race.isStopped()) {
+                        race.abandon();
+                        return 0.0;
+                    }
+                    Simulation simulation = acquireSimulation(runNetwork);
+                    try {
+                        return runSimulation(simulation, run, race);
+                    } finally {
+                        releaseSimulation();
+                    }
+                }
+            });
+        }
+
+        // Store in run order so the result matches the sequential case
+        try {
+            int i = first;
+            for (Future<Double> run : getRunExecutor().invokeAll(runs)) {
+                runFitness[i++] = run.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncogError(e);
+        } catch (ExecutionException e) {
+            throw new EncogError(e.getCause());
+        }
+    }
+
+    /**
+     * Adaptive evaluation: another run is needed while the confidence interval of the mean
+     * fitness of the runs so far contains the survival threshold, i.e. while it is not yet clear
+     * which side of the cutoff the genome is on. Without a threshold every run is needed.
+     */
+    private boolean needsMoreRuns(double[] runFitness, int runs, double threshold) {
+        if (Double.isNaN(threshold) || runs < 2) {
+            return true;
+        }
+
+        double mean = getMean(runFitness, runs);
+        double variance = 0;
+        for (int i = 0; i < runs; i++) {
+            variance += (runFitness[i] - mean) * (runFitness[i] - mean);
+        }
+        variance /= runs - 1;
+
+        double halfWidth = confidenceZ * Math.sqrt(variance / runs);
+        return Math.abs(mean - threshold) <= halfWidth;
+    }
+
+    /**
+     * Run the simulation once. If the run is raced, it is stepped here rather than by
+     * {@link Simulation#run()} so the bound on the genome's score can be checked as it goes; the
+     * run is abandoned, and NaN returned, once the genome cannot reach the survival threshold.
+     *
+     * The raced loop is meant to do what {@link Simulation#run()} does: start, step until the
+     * configured number of iterations or until the schedule stops itself (e.g. once everything
+     * is collected, see {@link Simulation#setStopOnceCollected}), then finish, and read the
+     * fitness after finishing. The simulator source is not part of this project, so with
+     * {@link #setRaceCheck} every raced run that is not stopped is replayed with
+     * {@link Simulation#run()} from the same seed, and a difference is an error.
+     */
+    private double runSimulation(Simulation simulation, int run, Race race) {
+        seedRun(simulation, run);
+        if (race == null) {
+            simulation.run();
+            return getRunFitness(simulation);
+        }
+
+        final int iterations = simConfig.getSimulationIterations();
+        boolean stopped = false;
+        long steps = 0;
+        simulation.start();
+        // Stepping returns false once the simulation stops itself, e.g. when all is collected
+        while (steps < iterations && simulation.schedule.step(simulation)) {
+            steps = simulation.schedule.getSteps();
+            if (steps % raceInterval == 0 && steps < iterations
+                    && !race.update(run, getRunBound(simulation, steps, iterations))) {
+                stopped = true;
+                break;
+            }
+        }
+        simulation.finish();
+
+        race.addTicks(steps, stopped ? iterations - steps : 0);
+        if (stopped) {
+            race.abandon();
+            return Double.NaN;
+        }
+
+        double fitness = getRunFitness(simulation);
+        if (raceCheck) {
+            checkRacedRun(simulation, run, steps, fitness);
+        }
+        race.update(run, fitness);
+        return fitness;
+    }
+
+    // Replay a complete raced run with Simulation.run() and fail if it ends differently
+    private void checkRacedRun(Simulation simulation, int run, long steps, double fitness) {
+        seedRun(simulation, run);
+        simulation.run();
+        long runSteps = simulation.schedule.getSteps();
+        double runFitness = getRunFitness(simulation);
+        if (runSteps != steps || Double.compare(runFitness, fitness) != 0) {
+            throw new IllegalStateException("Raced run " + run + " ended after " + steps
+                    + " ticks with fitness " + fitness + " but Simulation.run() ended after "
+                    + runSteps + " ticks with fitness " + runFitness);
+        }
+    }
+
+    /**
+     * Seed the simulation for the given run of a genome, so that run i of every genome is played
+     * in the same environment however the runs are spread over threads and simulations, and
+     * whatever the simulation ran before. Run 0 uses the configured seed as it is.
+     */
+    private void seedRun(Simulation simulation, int run) {
+        simulation.random.setSeed(getRunSeed(simConfig.getSimulationSeed(), run));
+    }
+
+    private static long getRunSeed(long seed, int run) {
+        // Golden ratio increments spread the seeds of successive runs apart
+        return seed + run * 0x9E3779B97F4A7C15L;
+    }
+
+    private static double getRunFitness(Simulation simulation) {
+        return simulation.getFitness().getTeamFitness()
+                + TIME_BONUS * (1.0 - simulation.getProgressFraction()); // Time bonus
+    }
+
+    /**
+     * Optimistic bound on the final fitness of a run that has reached the given tick: the team
+     * fitness may still grow at {@link #raceOptimism} times the rate that would reach
+     * {@link #maxTeamFitness} over a whole run, and everything may be collected on the next tick.
+     */
+    private double getRunBound(Simulation simulation, long steps, int iterations) {
+        double remaining = 1.0 - (double) steps / iterations;
+        double teamFitness = Math.min(maxTeamFitness, simulation.getFitness().getTeamFitness()
+                + raceOptimism * maxTeamFitness * remaining);
+        return teamFitness + TIME_BONUS * remaining;
+    }
+
+    private Race startRace(double threshold) {
+        if (raceInterval <= 0 || Double.isNaN(threshold)) {
+            return null;
+        }
+        return new Race(threshold);
+    }
+
+    private static boolean isStopped(Race race) {
+        return race != null && race.isStopped();
+    }
+
+    /**
+     * The bound on the score of a genome whose runs are being raced. Each run has a bound on its
+     * fitness, which is the fitness itself once the run is done and the best possible fitness
+     * before it starts. The genome is stopped once the mean of the bounds of all the runs it may
+     * get falls below the survival threshold, and no more simulation is started for it. Only if
+     * some of its simulation is then not done, a run cut short or runs skipped, is the genome
+     * abandoned: a genome stopped by the fitness of its last run is complete, and scored by its
+     * fitness.
+     */
+    private final class Race {
+        private final double threshold;
+        private final double[] runBounds;
+        private boolean stopped;
+        private boolean abandoned;
+        private long ticksRun;
+        private long ticksSkipped;
+
+        Race(double threshold) {
+            this.threshold = threshold;
+            this.runBounds = new double[simulationRuns];
+            Arrays.fill(runBounds, maxTeamFitness + TIME_BONUS);
+        }
+
+        /** Returns false if the genome has been stopped. */
+        synchronized boolean update(int run, double bound) {
+            if (!stopped) {
+                runBounds[run] = bound;
+                stopped = getBound() < threshold;
+            }
+            return !stopped;
+        }
+
+        synchronized boolean isStopped() {
+            return stopped;
+        }
+
+        synchronized void abandon() {
+            abandoned = true;
+        }
+
+        synchronized boolean isAbandoned() {
+            return abandoned;
+        }
+
+        synchronized void addTicks(long run, long skipped) {
+            ticksRun += run;
+            ticksSkipped += skipped;
+        }
+
+        synchronized long getTicksRun() {
+            return ticksRun;
+        }
+
+        synchronized long getTicksSkipped() {
+            return ticksSkipped;
+        }
+
+        synchronized double getBound() {
+            return getBound(runBounds.length);
+        }
+
+        /**
+         * The bound on the mean fitness of the first runs, for a genome that was only going to
+         * get those runs. No more than the bound over all the runs, since runs that are not
+         * started are bounded by the best possible fitness.
+         */
+        synchronized double getBound(int runs) {
+            double sum = 0;
+            for (int i = 0; i < runs; i++) {
+                sum += runBounds[i];
+            }
+            return sum / runs;
+        }
+    }
+
+    /** The outcome of evaluating one network. */
+    static final class Evaluation {
+        final double score;
+        final int runs;
+        final boolean raced;
+        // True if some of the simulation was skipped and the score is only a bound
+        final boolean stopped;
+        final long ticksRun;
+        final long ticksSkipped;
+
+        Evaluation(double score, int runs, boolean raced, boolean stopped, long ticksRun,
+                long ticksSkipped) {
+            this.score = score;
+            this.runs = runs;
+            this.raced = raced;
+            this.stopped = stopped;
+            this.ticksRun = ticksRun;
+            this.ticksSkipped = ticksSkipped;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeDouble(score);
+            out.writeInt(runs);
+            out.writeBoolean(raced);
+            out.writeBoolean(stopped);
+            out.writeLong(ticksRun);
+            out.writeLong(ticksSkipped);
+        }
+
+        static Evaluation read(DataInput in) throws IOException {
+            return new Evaluation(in.readDouble(), in.readInt(), in.readBoolean(),
+                    in.readBoolean(), in.readLong(), in.readLong());
+        }
+    }
+
+    /**
+     * Get a simulation, ready to run, for the network. Each thread keeps one simulation and
+     * swaps the phenotype of its robot factory for each network, the simulation rebuilds its
+     * world and robots when it starts. Only the Simulation object is saved. Runs are seeded by
+     * {@link #runSimulation}, so what the simulation ran before does not affect the next run.
+     */
+    private Simulation acquireSimulation(MLRegression network) {
+        Phenotype phenotype = getPhenotypeForNetwork(network);
+        if (!simulationPooling) {
+            poolMisses.incrementAndGet();
+            Simulation simulation = createSimulation(phenotype);
+            simulation.setStopOnceCollected(true);
+            return simulation;
+        }
+
+        PooledSimulation pooled = simulationPool.get();
+        if (pooled == null) {
+            poolMisses.incrementAndGet();
+            pooled = new PooledSimulation(phenotype);
+            simulationPool.set(pooled);
+        } else {
+            poolHits.incrementAndGet();
+            pooled.phenotype.setPhenotype(phenotype);
+        }
+        return pooled.simulation;
+    }
+
+    /**
+     * Drop the phenotype of the network that was just evaluated from this thread's pooled
+     * simulation, so the pool does not keep the last network of each thread reachable between
+     * evaluations.
+     */
+    private void releaseSimulation() {
+        if (simulationPooling) {
+            PooledSimulation pooled = simulationPool.get();
+            if (pooled != null) {
+                pooled.phenotype.setPhenotype(null);
+            }
+        }
+    }
+
+    private Simulation createSimulation(MLRegression network) {
+        return createSimulation(getPhenotypeForNetwork(network));
+    }
+
+    private Simulation createSimulation(Phenotype phenotype) {
+        RobotFactory robotFactory = new HomogeneousRobotFactory(phenotype,
                 simConfig.getRobotMass(), simConfig.getRobotRadius(), simConfig.getRobotColour(),
                 simConfig.getObjectsRobots());
+        return new Simulation(simConfig, robotFactory);
+    }
+
+    /** A thread's reusable simulation and the phenotype its robots are cloned from. */
+    private final class PooledSimulation {
+        private final SwappablePhenotype phenotype;
+        private final Simulation simulation;
+
+        PooledSimulation(Phenotype initialPhenotype) {
+            phenotype = new SwappablePhenotype(initialPhenotype);
+            simulation = createSimulation(phenotype);
+            simulation.setStopOnceCollected(true);
+        }
+    }
+
+    private static MLRegression copyNetwork(MLRegression network) {
+        if (network instanceof SANENetwork) {
+            return ((SANENetwork) network).clone();
+        }
+        return (BasicNetwork) ((BasicNetwork) network).clone();
+    }
+
+    private static synchronized ExecutorService getRunExecutor() {
+        if (runExecutor == null) {
+            runExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "simulation-run");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return runExecutor;
+    }
+
+    public void demo(MLMethod method) {
+        // Create the robot and resource factories
+        MLRegression network = (MLRegression) method;
 
         // Create the simulation and run it
-        Simulation simulation = new Simulation(simConfig, robotFactory);
+        Simulation simulation = createSimulation(network);
 
         SimulationGUI video = new SimulationGUI(simulation);
 
@@ -99,23 +593,155 @@ public class ScoreCalculator implements CalculateScore {
         console.setVisible(true);
     }
 
-    private Phenotype getPhenotypeForNetwork(BasicNetwork network) {
-            return new SANEPhenotype(network, sensorMorphology);
+    private Phenotype getPhenotypeForNetwork(MLRegression network) {
+        if (batchedInference && network instanceof SANENetwork) {
+            return new BatchedSANEPhenotype((SANENetwork) network, sensorMorphology);
+        }
+        return new SANEPhenotype(network, sensorMorphology);
+    }
+
+    /**
+     * Evaluate the network once per tick for all the robots in a simulation rather than once
+     * per robot. Only applies to {@link SANENetwork}s. The robots act on the sensor readings of
+     * the previous tick, which changes their behaviour: this is not only a performance setting,
+     * and scores are not comparable with those of unbatched evaluation.
+     */
+    public void setBatchedInference(boolean batchedInference) {
+        this.batchedInference = batchedInference;
+    }
+
+    /**
+     * Stop evaluating a genome once an optimistic bound on its score falls below the survival
+     * threshold set by the trainer. The bound is checked every {@code interval} ticks of each run.
+     * The score of a genome whose simulations were cut short is its bound rather than its fitness,
+     * which still leaves it below the threshold.
+     *
+     * @param interval       ticks between checks, 0 to disable racing
+     * @param maxTeamFitness the highest team fitness a run can reach
+     * @param optimism       the fastest rate the team fitness is assumed to grow for the rest of a
+     *                       run, as a multiple of the rate reaching maxTeamFitness over a whole run
+     */
+    public void setRacing(int interval, double maxTeamFitness, double optimism) {
+        this.raceInterval = interval;
+        this.maxTeamFitness = maxTeamFitness;
+        this.raceOptimism = optimism;
+    }
 
+    /**
+     * @param raceCheck true to replay every raced run that is not stopped with
+     *                  {@link Simulation#run()} and throw if the two differ, doubling the cost of
+     *                  those runs
+     */
+    public void setRaceCheck(boolean raceCheck) {
+        this.raceCheck = raceCheck;
     }
+
+    /**
+     * Run the simulations in worker processes rather than in this process. Statistics are still
+     * recorded here. Only {@link SANENetwork}s can be evaluated by the workers.
+     *
+     * @param workerPool the workers, or null to evaluate in this process
+     */
+    public void setWorkerPool(WorkerProcessPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    /**
+     * Reuse one simulation per thread rather than building a new one for each genome. Enabled by
+     * default.
+     */
+    public void setSimulationPooling(boolean simulationPooling) {
+        this.simulationPooling = simulationPooling;
+    }
+
+    /** Number of times a pooled simulation was reused. */
+    public long getPoolHits() {
+        return poolHits.get();
+    }
+
+    /** Number of simulations built, either to fill the pool or with pooling disabled. */
+    public long getPoolMisses() {
+        return poolMisses.get();
+    }
+
+    public void resetPoolStatistics() {
+        poolHits.set(0);
+        poolMisses.set(0);
+    }
+
+    /**
+     * Start each genome with fewer runs and only add runs, up to the number of simulation runs,
+     * while it is unclear whether the genome survives selection: while the confidence interval of
+     * its mean fitness overlaps the survival threshold set by the trainer.
+     *
+     * @param initialRuns runs each genome starts with, 0 to always do all the runs
+     * @param confidenceZ half-width of the confidence interval in standard errors
+     */
+    public void setAdaptiveRuns(int initialRuns, double confidenceZ) {
+        this.initialRuns = initialRuns;
+        this.confidenceZ = confidenceZ;
+    }
+
+    public boolean isAdaptive() {
+        return initialRuns > 0;
+    }
+
+    public boolean isRacing() {
+        return raceInterval > 0;
+    }
+
+    @Override
+    public void setSurvivalThreshold(double threshold) {
+        this.survivalThreshold = threshold;
+    }
+
+    @Override
+    public boolean isLastScoreBound() {
+        return Boolean.TRUE.equals(lastScoreBound.get());
+    }
+
+    public long getRacedEvaluations() {
+        return racedEvaluations.get();
+    }
+
+    /** Number of raced evaluations that were cut short, scored by their bound. */
+    public long getStoppedEvaluations() {
+        return stoppedEvaluations.get();
+    }
+
+    public long getTicksRun() {
+        return ticksRun.get();
+    }
+
+    public long getTicksSkipped() {
+        return ticksSkipped.get();
+    }
+
+    public void resetRacingStatistics() {
+        racedEvaluations.set(0);
+        stoppedEvaluations.set(0);
+        ticksRun.set(0);
+        ticksSkipped.set(0);
+    }
+
     public boolean isEvolvingMorphology() {
         return false;
     }
 
-    public DescriptiveStatistics getPerformanceStatistics() {
+    public StreamingStatistics getPerformanceStatistics() {
         return performanceStats;
     }
 
-    public DescriptiveStatistics getScoreStatistics() {
+    public StreamingStatistics getScoreStatistics() {
         return scoreStats;
     }
 
-    public DescriptiveStatistics getSensorStatistics() {
+    /** Number of simulation runs of each evaluation. */
+    public StreamingStatistics getRunStatistics() {
+        return runStats;
+    }
+
+    public StreamingStatistics getSensorStatistics() {
         return sensorStats;
     }
 
@@ -1,6 +1,6 @@
 package za.redbridge.controller;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.encog.ml.MLMethod;
 import org.encog.ml.ea.genome.Genome;
 import org.encog.ml.ea.population.Population;
 import org.encog.ml.ea.train.EvolutionaryAlgorithm;
@@ -9,16 +9,27 @@ import org.encog.neural.neat.training.NEATGenome;
 import org.encog.neural.networks.BasicNetwork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import za.redbridge.controller.SANE.BasicSANE;
 import za.redbridge.controller.SANE.BlueprintGenome;
+import za.redbridge.controller.SANE.FitnessCache;
+import za.redbridge.controller.SANE.PhaseTimer;
+import za.redbridge.controller.SANE.SANECheckpoint;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 
 
@@ -28,28 +39,80 @@ import static za.redbridge.controller.Utils.saveObjectToFile;
 /**
  * Class for recording stats each epoch.
  *
+ * In steady-state mode an epoch ends while evaluations are still in flight. Those evaluations are
+ * counted in the epoch in which they finish, so the per-epoch scores, runs, cache, racing and
+ * phase numbers describe the evaluations that finished during the epoch rather than the
+ * blueprints bred in it. A note saying so is written to the results directory.
+ *
  * Created by jamie on 2014/09/28.
  */
 public class StatsRecorder {
 
     private static final Logger log = LoggerFactory.getLogger(StatsRecorder.class);
 
+    private static final String STEADY_STATE_NOTE = "This run used steady-state evolution."
+            + " Evaluations still in flight at the end of an epoch are counted in the epoch in"
+            + " which they finish,\nso the per-epoch stats files describe the evaluations that"
+            + " finished during each epoch.\n";
+
     private final EvolutionaryAlgorithm trainer;
     private final ScoreCalculator calculator;
 
     private Genome currentBestGenome;
 
-    private Path rootDirectory;
+    private final Path rootDirectory;
     private Path populationDirectory;
     private Path bestNetworkDirectory;
 
     private Path performanceStatsFile;
     private Path scoreStatsFile;
+    private Path runStatsFile;
     private Path sensorStatsFile;
+    private Path cacheStatsFile;
+    private Path phaseStatsFile;
+    private Path racingStatsFile;
+    private Path gcStatsFile;
+
+    // Collector totals at the end of the last epoch
+    private long lastGcCount;
+    private long lastGcMillis;
+
+    private CheckpointWriter checkpointWriter;
+
+    // True if appending to the files of a previous run
+    private final boolean resumed;
+
+    // Settings of the run, stored in the checkpoints
+    private Map<String, String> checkpointSettings = Collections.emptyMap();
 
     public StatsRecorder(EvolutionaryAlgorithm trainer, ScoreCalculator calculator) {
+        this(trainer, calculator, getLoggingDirectory(), false);
+    }
+
+    /**
+     * Continue recording into the results directory of a previous run. Existing stats files are
+     * appended to, after dropping any rows of epochs after the trainer's current epoch, i.e. the
+     * epoch of the checkpoint it was resumed from.
+     */
+    public StatsRecorder(EvolutionaryAlgorithm trainer, ScoreCalculator calculator,
+            Path rootDirectory) {
+        this(trainer, calculator, rootDirectory, true);
+    }
+
+    private StatsRecorder(EvolutionaryAlgorithm trainer, ScoreCalculator calculator,
+            Path rootDirectory, boolean resumed) {
         this.trainer = trainer;
         this.calculator = calculator;
+        this.rootDirectory = rootDirectory;
+        this.resumed = resumed;
+
+        if (resumed) {
+            // The restored best genome has already been saved
+            currentBestGenome = trainer.getBestGenome();
+        }
+
+        lastGcCount = getGcCount();
+        lastGcMillis = getGcMillis();
 
         initFiles();
     }
@@ -60,11 +123,11 @@ public class StatsRecorder {
     }
 
     private void initDirectories() {
-        rootDirectory = getLoggingDirectory();
         initDirectory(rootDirectory);
 
         populationDirectory = rootDirectory.resolve("populations");
         initDirectory(populationDirectory);
+        checkpointWriter = new CheckpointWriter(populationDirectory);
 
         bestNetworkDirectory = rootDirectory.resolve("best networks");
         initDirectory(bestNetworkDirectory);
@@ -80,31 +143,119 @@ public class StatsRecorder {
 
     private void initStatsFiles() {
         performanceStatsFile = rootDirectory.resolve("performance.csv");
-        initStatsFile(performanceStatsFile);
+        initFile(performanceStatsFile, "epoch, max, min, mean, standev, p50, p90, p99\n");
 
         scoreStatsFile = rootDirectory.resolve("scores.csv");
         initStatsFile(scoreStatsFile);
 
+        gcStatsFile = rootDirectory.resolve("gc.csv");
+        initFile(gcStatsFile, "epoch, pool hits, pool misses, pool hit rate, gc count, gc ms\n");
+
+        runStatsFile = rootDirectory.resolve("runs.csv");
+        initFile(runStatsFile, "epoch, evaluations, total runs, mean, min, max\n");
+
+        if (getFitnessCache() != null) {
+            cacheStatsFile = rootDirectory.resolve("cache.csv");
+            initFile(cacheStatsFile, "epoch, hits, misses, hit rate, size\n");
+        }
+
+        if (trainer instanceof BasicSANE) {
+            phaseStatsFile = rootDirectory.resolve("phases.csv");
+            initFile(phaseStatsFile,
+                    "epoch, phase, wall ms, busy ms, utilization, tasks, mean queue wait ms\n");
+        }
+
+        if (calculator.isRacing()) {
+            racingStatsFile = rootDirectory.resolve("racing.csv");
+            initFile(racingStatsFile,
+                    "epoch, raced, stopped, stopped fraction, ticks run, ticks skipped\n");
+        }
+
+        if (trainer instanceof BasicSANE && ((BasicSANE) trainer).isSteadyState()) {
+            initFile(rootDirectory.resolve("steady-state.txt"), STEADY_STATE_NOTE);
+        }
+    }
+
+    private void initStatsFile(Path path) {
+        initFile(path, "epoch, max, min, mean, standev\n");
     }
 
-    private static void initStatsFile(Path path) {
+    private void initFile(Path path, String header) {
+        if (resumed && Files.exists(path)) {
+            if (header.startsWith("epoch")) {
+                truncateToEpoch(path, trainer.getIteration());
+            }
+            return;
+        }
+
         try (BufferedWriter writer = Files.newBufferedWriter(path, Charset.defaultCharset())) {
-            writer.write("epoch, max, min, mean, standev\n");
+            writer.write(header);
         } catch (IOException e) {
             log.error("Unable to initialize stats file", e);
         }
     }
 
+    /**
+     * Drop the rows of the stats file for epochs after the given one, which a run that went on
+     * past its checkpoint wrote before it stopped. The first column of each row is the epoch.
+     */
+    private static void truncateToEpoch(Path path, int epoch) {
+        try {
+            List<String> lines = Files.readAllLines(path, Charset.defaultCharset());
+            List<String> kept = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                // Keep the header
+                if (i == 0 || getRowEpoch(line) <= epoch) {
+                    kept.add(line);
+                }
+            }
+            if (kept.size() < lines.size()) {
+                log.info("Dropping " + (lines.size() - kept.size()) + " rows after epoch " + epoch
+                        + " from " + path);
+                Files.write(path, kept, Charset.defaultCharset());
+            }
+        } catch (IOException e) {
+            log.error("Unable to truncate stats file", e);
+        }
+    }
+
+    // The epoch of a stats row, or Integer.MIN_VALUE if the row does not start with one
+    private static int getRowEpoch(String line) {
+        int end = line.indexOf(',');
+        try {
+            return Integer.parseInt((end < 0 ? line : line.substring(0, end)).trim());
+        } catch (NumberFormatException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+
     public void recordIterationStats() {
         int epoch = trainer.getIteration();
         log.info("Epoch " + epoch + " complete");
 
-        recordStats(calculator.getPerformanceStatistics(), epoch, performanceStatsFile);
+        recordPerformanceStats(calculator.getPerformanceStatistics(), epoch);
 
         recordStats(calculator.getScoreStatistics(), epoch, scoreStatsFile);
 
+        recordRunStats(calculator.getRunStatistics(), epoch);
+
+        recordGcStats(epoch);
+
+        FitnessCache cache = getFitnessCache();
+        if (cache != null) {
+            recordCacheStats(cache, epoch);
+        }
+
+        if (trainer instanceof BasicSANE) {
+            recordPhaseStats(((BasicSANE) trainer).getPhaseTimer(), epoch);
+        }
 
-        savePopulation((Population) trainer.getPopulation(), epoch);
+        if (calculator.isRacing()) {
+            recordRacingStats(epoch);
+        }
+
+        savePopulation(epoch);
 
         // Check if new best network and save it if so
         BlueprintGenome newBestGenome = (BlueprintGenome) trainer.getBestGenome();
@@ -114,10 +265,33 @@ public class StatsRecorder {
         }
     }
 
-    private void savePopulation(Population population, int epoch) {
-        String filename = "epoch-" + epoch + ".ser";
-        Path path = populationDirectory.resolve(filename);
-        saveObjectToFile(population, path);
+    /**
+     * Set which population checkpoints are kept: every Nth epoch and the last K epochs.
+     */
+    /** The settings of the run, stored with every checkpoint so a resumed run can be checked. */
+    public void setCheckpointSettings(Map<String, String> settings) {
+        checkpointSettings = settings;
+    }
+
+    public void setCheckpointRetention(int keepEvery, int keepLast) {
+        checkpointWriter.setRetention(keepEvery, keepLast);
+    }
+
+    /** Wait for any pending checkpoints to be written. */
+    public void close() {
+        checkpointWriter.close();
+    }
+
+    private void savePopulation(int epoch) {
+        if (trainer instanceof BasicSANE) {
+            // Copy the populations now, write them out in the background
+            checkpointWriter.write(
+                    SANECheckpoint.capture((BasicSANE) trainer, checkpointSettings), epoch);
+        } else {
+            String filename = "epoch-" + epoch + ".ser";
+            Path path = populationDirectory.resolve(filename);
+            saveObjectToFile((Population) trainer.getPopulation(), path);
+        }
     }
 
     private void saveGenome(BlueprintGenome genome, int epoch) {
@@ -136,31 +310,138 @@ public class StatsRecorder {
             log.error("Error writing best network info file", e);
         }
 
-        BasicNetwork network = decodeGenome(genome);
-        saveObjectToFile(network, directory.resolve("network.ser"));
+        MLMethod network = decodeGenome(genome);
+        saveObjectToFile((Serializable) network, directory.resolve("network.ser"));
 
         //GraphvizEngine.saveGenome(genome, directory.resolve("graph.dot"));
     }
 
-    private void recordStats(DescriptiveStatistics stats, int epoch, Path filepath) {
-        double max = stats.getMax();
-        double min = stats.getMin();
-        double mean = stats.getMean();
-        double sd = stats.getStandardDeviation();
-        stats.clear();
+    private void recordStats(StreamingStatistics stats, int epoch, Path filepath) {
+        StreamingStatistics.Summary summary = stats.snapshotAndReset();
+        double max = summary.getMax();
+        double min = summary.getMin();
+        double mean = summary.getMean();
+        double sd = summary.getStandardDeviation();
 
         log.debug("Recording stats - max: " + max + ", mean: " + mean);
         saveStats(filepath, epoch, max, min, mean, sd);
     }
 
-    private BasicNetwork decodeGenome(Genome genome) {
-        return (BasicNetwork) trainer.getCODEC().decode(genome);
+    private void recordPerformanceStats(StreamingStatistics stats, int epoch) {
+        StreamingStatistics.Summary summary = stats.snapshotAndReset();
+        double p50 = summary.getPercentile(50);
+        double p90 = summary.getPercentile(90);
+        double p99 = summary.getPercentile(99);
+
+        log.debug("Recording performance stats - p50: " + p50 + ", p99: " + p99);
+        appendLine(performanceStatsFile, String.format("%d, %f, %f, %f, %f, %f, %f, %f\n", epoch,
+                summary.getMax(), summary.getMin(), summary.getMean(),
+                summary.getStandardDeviation(), p50, p90, p99));
+    }
+
+    private void recordRunStats(StreamingStatistics stats, int epoch) {
+        StreamingStatistics.Summary summary = stats.snapshotAndReset();
+        long evaluations = summary.getN();
+        long totalRuns = Math.round(summary.getMean() * evaluations);
+
+        log.debug("Recording run stats - evaluations: " + evaluations + ", runs: " + totalRuns);
+        appendLine(runStatsFile, String.format("%d, %d, %d, %f, %f, %f\n", epoch, evaluations,
+                totalRuns, summary.getMean(), summary.getMin(), summary.getMax()));
+    }
+
+    private void recordGcStats(int epoch) {
+        long hits = calculator.getPoolHits();
+        long misses = calculator.getPoolMisses();
+        calculator.resetPoolStatistics();
+
+        long gcCount = getGcCount();
+        long gcMillis = getGcMillis();
+        long epochGcCount = gcCount - lastGcCount;
+        long epochGcMillis = gcMillis - lastGcMillis;
+        lastGcCount = gcCount;
+        lastGcMillis = gcMillis;
+
+        double hitRate = hits + misses > 0 ? (double) hits / (hits + misses) : 0;
+        log.debug("Simulation pool - hits: " + hits + ", misses: " + misses + ", GC ms: "
+                + epochGcMillis);
+        appendLine(gcStatsFile, String.format("%d, %d, %d, %f, %d, %d\n", epoch, hits, misses,
+                hitRate, epochGcCount, epochGcMillis));
+    }
+
+    // Collections so far by all the collectors of the JVM
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    // Time spent collecting so far by all the collectors of the JVM
+    private static long getGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    private void recordCacheStats(FitnessCache cache, int epoch) {
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        cache.resetStatistics();
+
+        double hitRate = hits + misses > 0 ? (double) hits / (hits + misses) : 0;
+        log.debug("Fitness cache - hits: " + hits + ", misses: " + misses);
+        appendLine(cacheStatsFile, String.format("%d, %d, %d, %f, %d\n", epoch, hits, misses,
+                hitRate, cache.size()));
+    }
+
+    private void recordPhaseStats(PhaseTimer timer, int epoch) {
+        StringBuilder lines = new StringBuilder();
+        for (PhaseTimer.Phase phase : PhaseTimer.Phase.values()) {
+            long tasks = timer.getTaskCount(phase);
+            double queueWait = tasks > 0 ? timer.getQueueNanos(phase) / (tasks * 1e6) : 0;
+            lines.append(String.format("%d, %s, %f, %f, %f, %d, %f\n", epoch, phase.getLabel(),
+                    timer.getWallNanos(phase) / 1e6, timer.getBusyNanos(phase) / 1e6,
+                    timer.getUtilization(phase), tasks, queueWait));
+        }
+        timer.reset();
+
+        appendLine(phaseStatsFile, lines.toString());
+    }
+
+    private void recordRacingStats(int epoch) {
+        long raced = calculator.getRacedEvaluations();
+        long stopped = calculator.getStoppedEvaluations();
+        long ticksRun = calculator.getTicksRun();
+        long ticksSkipped = calculator.getTicksSkipped();
+        calculator.resetRacingStatistics();
+
+        double stoppedFraction = raced > 0 ? (double) stopped / raced : 0;
+        log.debug("Racing - raced: " + raced + ", stopped: " + stopped);
+        appendLine(racingStatsFile, String.format("%d, %d, %d, %f, %d, %d\n", epoch, raced,
+                stopped, stoppedFraction, ticksRun, ticksSkipped));
+    }
+
+    private FitnessCache getFitnessCache() {
+        if (trainer instanceof BasicSANE) {
+            return ((BasicSANE) trainer).getFitnessCache();
+        }
+        return null;
+    }
+
+    private MLMethod decodeGenome(Genome genome) {
+        return trainer.getCODEC().decode(genome);
     }
 
     private static void saveStats(Path path, int epoch, double max, double min, double mean,
             double sd) {
         String line = String.format("%d, %f, %f, %f, %f\n", epoch, max, min, mean, sd);
+        appendLine(path, line);
+    }
 
+    private static void appendLine(Path path, String line) {
         final OpenOption[] options = {
                 StandardOpenOption.APPEND, StandardOpenOption.CREATE, StandardOpenOption.WRITE
         };
@@ -0,0 +1,181 @@
+package za.redbridge.controller;
+
+/**
+ * Fixed-memory replacement for SynchronizedDescriptiveStatistics for values recorded from many
+ * evaluation threads. Values are added to Welford accumulators (and optionally
+ * {@link QuantileSketch}es) striped by thread, so threads rarely contend for the same lock, and
+ * the stripes are merged when a snapshot is taken at the end of an epoch.
+ *
+ * The number of stripes is fixed, so threads that come and go leave nothing behind. A snapshot
+ * drains each stripe under its lock, so every value is counted in exactly one snapshot.
+ */
+public class StreamingStatistics {
+
+    /** Relative accuracy of the quantiles, if tracked. */
+    private static final double QUANTILE_ACCURACY = 0.01;
+
+    private final boolean trackQuantiles;
+
+    private final Accumulator[] stripes;
+    private final int stripeMask;
+
+    public StreamingStatistics() {
+        this(false);
+    }
+
+    /**
+     * @param trackQuantiles whether to keep a quantile sketch of the values
+     */
+    public StreamingStatistics(boolean trackQuantiles) {
+        this.trackQuantiles = trackQuantiles;
+
+        // a power of two at least twice the number of processors
+        int stripeCount = Integer.highestOneBit(
+                Math.max(Runtime.getRuntime().availableProcessors(), 1) * 4 - 1);
+        stripes = new Accumulator[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Accumulator(trackQuantiles);
+        }
+        stripeMask = stripeCount - 1;
+    }
+
+    public void addValue(double value) {
+        Accumulator stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        synchronized (stripe) {
+            stripe.add(value);
+        }
+    }
+
+    /**
+     * Merge the values recorded by all threads since the last snapshot and start a new epoch.
+     */
+    public Summary snapshotAndReset() {
+        Accumulator merged = new Accumulator(trackQuantiles);
+        for (Accumulator stripe : stripes) {
+            synchronized (stripe) {
+                merged.merge(stripe);
+                stripe.reset();
+            }
+        }
+        return new Summary(merged);
+    }
+
+    /** Welford accumulator, guarded by its own monitor when used as a stripe. */
+    private static class Accumulator {
+        long count;
+        double mean;
+        double m2;
+        double min = Double.NaN;
+        double max = Double.NaN;
+
+        final QuantileSketch sketch;
+
+        Accumulator(boolean trackQuantiles) {
+            sketch = trackQuantiles ? new QuantileSketch(QUANTILE_ACCURACY) : null;
+        }
+
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+
+            if (count == 1) {
+                min = max = value;
+            } else {
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+
+            if (sketch != null) {
+                sketch.add(value);
+            }
+        }
+
+        // Chan et al. parallel combination of the two accumulators
+        void merge(Accumulator other) {
+            if (other.count == 0) {
+                return;
+            }
+
+            if (count == 0) {
+                min = other.min;
+                max = other.max;
+            } else {
+                min = Math.min(min, other.min);
+                max = Math.max(max, other.max);
+            }
+
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * count * other.count / total;
+            count = total;
+
+            if (sketch != null && other.sketch != null) {
+                sketch.merge(other.sketch);
+            }
+        }
+
+        void reset() {
+            count = 0;
+            mean = m2 = 0;
+            min = max = Double.NaN;
+            if (sketch != null) {
+                sketch.clear();
+            }
+        }
+    }
+
+    /** The statistics for one epoch. */
+    public static class Summary {
+        private final long count;
+        private final double mean;
+        private final double variance;
+        private final double min;
+        private final double max;
+        private final QuantileSketch sketch;
+
+        private Summary(Accumulator accumulator) {
+            count = accumulator.count;
+            mean = count > 0 ? accumulator.mean : Double.NaN;
+            if (count > 1) {
+                variance = accumulator.m2 / (count - 1);
+            } else {
+                variance = count == 1 ? 0 : Double.NaN;
+            }
+            min = accumulator.min;
+            max = accumulator.max;
+            sketch = accumulator.sketch;
+        }
+
+        public long getN() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        /** The sample standard deviation, as reported by DescriptiveStatistics. */
+        public double getStandardDeviation() {
+            return Math.sqrt(variance);
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100
+         * @return the approximate value at the percentile, NaN if quantiles are not tracked
+         */
+        public double getPercentile(double percentile) {
+            return sketch != null ? sketch.getQuantile(percentile / 100) : Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package za.redbridge.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import sim.util.Double2D;
+import za.redbridge.simulator.phenotype.Phenotype;
+import za.redbridge.simulator.sensor.AgentSensor;
+
+/**
+ * Phenotype whose behaviour can be replaced after the robot factory holding it has been created,
+ * so that a {@link za.redbridge.simulator.Simulation} can be reused for another network. The
+ * robot factory clones the phenotype for each robot when the simulation starts, and the clones
+ * are clones of the current phenotype, so the swap takes effect at the next start. Between
+ * evaluations the wrapped phenotype is null, and the simulation must not be started.
+ */
+public class SwappablePhenotype implements Phenotype {
+
+    private Phenotype phenotype;
+
+    public SwappablePhenotype(Phenotype phenotype) {
+        this.phenotype = phenotype;
+    }
+
+    public Phenotype getPhenotype() {
+        return phenotype;
+    }
+
+    public void setPhenotype(Phenotype phenotype) {
+        this.phenotype = phenotype;
+    }
+
+    @Override
+    public List<AgentSensor> getSensors() {
+        return phenotype.getSensors();
+    }
+
+    @Override
+    public Double2D step(List<List<Double>> sensorReadings) {
+        return phenotype.step(sensorReadings);
+    }
+
+    @Override
+    public Phenotype clone() {
+        return phenotype.clone();
+    }
+
+    @Override
+    public void configure(Map<String, Object> map) {
+        phenotype.configure(map);
+    }
+}
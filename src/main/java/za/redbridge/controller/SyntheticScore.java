@@ -0,0 +1,149 @@
+package za.redbridge.controller;
+
+import org.encog.ml.CalculateScore;
+import org.encog.ml.MLMethod;
+import org.encog.ml.MLRegression;
+import org.encog.ml.data.MLData;
+import org.encog.ml.data.basic.BasicMLData;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cheap stand-in for the simulation, for measuring the evolutionary algorithm on its own. The
+ * score of a network is how closely its outputs match a closed-form target function on a fixed
+ * set of probe inputs: 1 minus the mean squared error, so 1 is a perfect match for outputs and
+ * targets between 0 and 1. Works for any {@link MLRegression}, e.g. a BasicNetwork, a
+ * SANENetwork or a NEATMNetwork.
+ *
+ * An artificial cost can be added to every evaluation, spent busy-waiting, to stand in for
+ * simulations of different lengths.
+ */
+public class SyntheticScore implements CalculateScore {
+
+    private static final int PROBE_COUNT = 16;
+    private static final long PROBE_SEED = 42;
+
+    private final long costNanos;
+
+    // Probe inputs and their targets by network input and output count
+    private final ConcurrentMap<Long, Probes> probes = new ConcurrentHashMap<>();
+
+    private final AtomicLong evaluations = new AtomicLong();
+
+    public SyntheticScore() {
+        this(0);
+    }
+
+    /**
+     * @param costNanos time to spend on each evaluation on top of computing the network outputs
+     */
+    public SyntheticScore(long costNanos) {
+        if (costNanos < 0) {
+            throw new IllegalArgumentException("Cost must not be negative: " + costNanos);
+        }
+        this.costNanos = costNanos;
+    }
+
+    @Override
+    public double calculateScore(MLMethod method) {
+        final long start = costNanos > 0 ? System.nanoTime() : 0;
+
+        MLRegression network = (MLRegression) method;
+        final int inputCount = network.getInputCount();
+        final int outputCount = network.getOutputCount();
+        Probes probes = getProbes(inputCount, outputCount);
+
+        MLData input = new BasicMLData(inputCount);
+        double error = 0;
+        for (int p = 0; p < PROBE_COUNT; p++) {
+            final double[] probe = probes.inputs[p];
+            for (int i = 0; i < inputCount; i++) {
+                input.setData(i, probe[i]);
+            }
+
+            MLData output = network.compute(input);
+            final double[] target = probes.targets[p];
+            for (int j = 0; j < outputCount; j++) {
+                double difference = output.getData(j) - target[j];
+                error += difference * difference;
+            }
+        }
+
+        if (costNanos > 0) {
+            // Busy, like a simulation would be, rather than sleeping
+            while (System.nanoTime() - start < costNanos) {
+                // Spin
+            }
+        }
+
+        evaluations.incrementAndGet();
+        return 1 - error / (PROBE_COUNT * outputCount);
+    }
+
+    /** Number of networks scored so far. */
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    @Override
+    public boolean shouldMinimize() {
+        return false;
+    }
+
+    @Override
+    public boolean requireSingleThreaded() {
+        return false;
+    }
+
+    private Probes getProbes(int inputCount, int outputCount) {
+        final Long key = ((long) inputCount << 32) | outputCount;
+        Probes result = probes.get(key);
+        if (result == null) {
+            result = new Probes(inputCount, outputCount);
+            Probes existing = probes.putIfAbsent(key, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The target for output j: 0.5 + 0.5 sin((j + 1) pi s), where s is the mean of the inputs
+     * with alternating signs. Smooth, between 0 and 1 like the sigmoid outputs of the networks,
+     * and different for every output.
+     */
+    private static double target(double[] input, int output) {
+        double sum = 0;
+        for (int i = 0; i < input.length; i++) {
+            sum += (i % 2 == 0) ? input[i] : -input[i];
+        }
+        double mean = input.length > 0 ? sum / input.length : 0;
+        return 0.5 + 0.5 * Math.sin((output + 1) * Math.PI * mean);
+    }
+
+    private static final class Probes {
+        final double[][] inputs = new double[PROBE_COUNT][];
+        final double[][] targets = new double[PROBE_COUNT][];
+
+        Probes(int inputCount, int outputCount) {
+            // The same probes for every run, so scores can be compared between runs
+            Random random = new Random(PROBE_SEED);
+            for (int p = 0; p < PROBE_COUNT; p++) {
+                double[] input = new double[inputCount];
+                for (int i = 0; i < inputCount; i++) {
+                    input[i] = random.nextDouble();
+                }
+                double[] target = new double[outputCount];
+                for (int j = 0; j < outputCount; j++) {
+                    target[j] = target(input, j);
+                }
+                inputs[p] = input;
+                targets[p] = target;
+            }
+        }
+    }
+}
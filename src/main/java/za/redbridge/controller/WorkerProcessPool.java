@@ -0,0 +1,237 @@
+package za.redbridge.controller;
+
+import org.encog.EncogError;
+import org.encog.ml.MLRegression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import za.redbridge.controller.NEATM.sensor.SensorMorphology;
+import za.redbridge.controller.SANE.SANENetwork;
+
+/**
+ * A pool of worker JVMs that run simulations, see {@link EvaluationWorker}. Each worker has its
+ * own heap and garbage collector, so a collection in one worker does not pause the simulations
+ * of the others. A network is sent to an idle worker as the flat arrays of a
+ * {@link SANENetwork} over the worker's standard input, and the result is read back from its
+ * standard output. The worker's standard error is passed through to this process. Every
+ * worker is first sent the serialized sensor morphology of this process, so both build the
+ * same robots.
+ *
+ * Thread-safe: callers block until a worker is idle. A worker whose evaluation fails is killed
+ * and replaced, since its streams may be part way through a message; if a replacement cannot
+ * be started the pool fails and every evaluation after that throws.
+ */
+public class WorkerProcessPool implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkerProcessPool.class);
+
+    // How long close() waits for a worker to exit before killing it
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    private static final long EXIT_POLL_MILLIS = 50;
+    // How often a caller waiting for an idle worker checks whether the pool has failed
+    private static final long IDLE_POLL_SECONDS = 1;
+
+    private final List<String> command;
+    // The sensor morphology, serialized, sent to every worker as it starts
+    private final byte[] morphology;
+    private final List<Worker> workers;
+    private final BlockingQueue<Worker> idleWorkers;
+
+    private volatile boolean failed;
+
+    /**
+     * Start the workers, running on the class path of this process.
+     *
+     * @param size       number of worker processes
+     * @param workerArgs command line arguments for {@link EvaluationWorker}
+     * @param morphology the sensor morphology the workers evaluate networks with
+     */
+    public WorkerProcessPool(int size, List<String> workerArgs, SensorMorphology morphology)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(morphology);
+        }
+        this.morphology = bytes.toByteArray();
+
+        command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(EvaluationWorker.class.getName());
+        command.addAll(workerArgs);
+
+        workers = new ArrayList<>(size);
+        idleWorkers = new LinkedBlockingQueue<>();
+        for (int i = 0; i < size; i++) {
+            idleWorkers.add(startWorker());
+        }
+        log.info("Started " + size + " evaluation worker processes");
+    }
+
+    private Worker startWorker() throws IOException {
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        Worker worker = new Worker(process);
+        try {
+            worker.sendMorphology(morphology);
+        } catch (IOException e) {
+            process.destroy();
+            throw e;
+        }
+        synchronized (workers) {
+            workers.add(worker);
+        }
+        return worker;
+    }
+
+    /** Kill a worker that failed and start another in its place. */
+    private void replaceWorker(Worker worker) {
+        worker.process.destroy();
+        synchronized (workers) {
+            workers.remove(worker);
+        }
+
+        try {
+            idleWorkers.add(startWorker());
+            log.warn("Replaced a failed evaluation worker process");
+        } catch (IOException e) {
+            log.error("Unable to start a replacement evaluation worker process", e);
+            failed = true;
+        }
+    }
+
+    /**
+     * Evaluate the network on the next idle worker.
+     *
+     * @param threshold the survival threshold, NaN if there is none
+     */
+    ScoreCalculator.Evaluation evaluate(MLRegression network, double threshold) {
+        if (!(network instanceof SANENetwork)) {
+            throw new IllegalArgumentException("Worker processes can only evaluate SANENetworks,"
+                    + " not " + network.getClass().getName());
+        }
+
+        Worker worker;
+        try {
+            do {
+                if (failed) {
+                    throw new EncogError("Evaluation worker pool failed");
+                }
+                worker = idleWorkers.poll(IDLE_POLL_SECONDS, TimeUnit.SECONDS);
+            } while (worker == null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncogError(e);
+        }
+
+        boolean completed = false;
+        try {
+            ScoreCalculator.Evaluation evaluation =
+                    worker.evaluate((SANENetwork) network, threshold);
+            completed = true;
+            return evaluation;
+        } catch (IOException e) {
+            throw new EncogError("Evaluation worker process failed", e);
+        } finally {
+            // A worker that failed part way through may have unread output, never reuse it
+            if (completed) {
+                idleWorkers.add(worker);
+            } else {
+                replaceWorker(worker);
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (workers) {
+            return workers.size();
+        }
+    }
+
+    /** Ask the workers to exit, killing any that do not. */
+    @Override
+    public void close() {
+        List<Worker> running;
+        synchronized (workers) {
+            running = new ArrayList<>(workers);
+        }
+        for (Worker worker : running) {
+            worker.shutdown();
+        }
+        for (Worker worker : running) {
+            worker.awaitExit();
+        }
+    }
+
+    private static final class Worker {
+        private final Process process;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+
+        Worker(Process process) {
+            this.process = process;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        void sendMorphology(byte[] morphology) throws IOException {
+            out.writeInt(morphology.length);
+            out.write(morphology);
+            out.flush();
+        }
+
+        ScoreCalculator.Evaluation evaluate(SANENetwork network, double threshold)
+                throws IOException {
+            out.writeInt(EvaluationWorker.EVALUATE);
+            out.writeDouble(threshold);
+            network.write(out);
+            out.flush();
+            return ScoreCalculator.Evaluation.read(in);
+        }
+
+        void shutdown() {
+            try {
+                out.writeInt(EvaluationWorker.SHUTDOWN);
+                out.close();
+            } catch (IOException e) {
+                log.debug("Worker input already closed", e);
+            }
+        }
+
+        void awaitExit() {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_TIMEOUT_SECONDS);
+            try {
+                while (System.nanoTime() < deadline) {
+                    try {
+                        process.exitValue();
+                        return;
+                    } catch (IllegalThreadStateException e) {
+                        // Still running
+                        Thread.sleep(EXIT_POLL_MILLIS);
+                    }
+                }
+                log.warn("Evaluation worker did not exit, killing it");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            process.destroy();
+        }
+    }
+}